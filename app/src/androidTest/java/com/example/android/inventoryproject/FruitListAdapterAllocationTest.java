@@ -0,0 +1,65 @@
+package com.example.android.inventoryproject;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.FrameLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented test that counts the allocations made by
+ * {@link FruitListAdapter#onBindViewHolder}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FruitListAdapterAllocationTest {
+
+    // Number of binds measured.
+    private static final int BIND_COUNT = 1000;
+
+    // Number of allocations tolerated over all the binds, made by the framework rather than
+    // by the binds, such as the growth of an internal buffer. A bind that allocates even a
+    // single object goes far above it.
+    private static final int MAX_ALLOCATIONS = 10;
+
+    @Test
+    public void onBindViewHolder_doesNotAllocate() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                FruitListAdapter adapter = new FruitListAdapter(context,
+                        AsyncTask.SERIAL_EXECUTOR);
+                adapter.submitList(Arrays.asList(
+                        new FruitSummary(1, "Apple", "3", "25"),
+                        new FruitSummary(2, "Banana", "2", "40")));
+
+                FrameLayout parent = new FrameLayout(context);
+                FruitListAdapter.ViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+                // Warm up the views of the holder.
+                adapter.onBindViewHolder(holder, 0);
+                adapter.onBindViewHolder(holder, 1);
+
+                Debug.resetThreadAllocCount();
+                Debug.startAllocCounting();
+                for (int i = 0; i < BIND_COUNT; i++) {
+                    adapter.onBindViewHolder(holder, i % 2);
+                }
+                Debug.stopAllocCounting();
+                int allocations = Debug.getThreadAllocCount();
+
+                // The text is already allocated by the snapshot, binding a row should not
+                // allocate anything.
+                assertTrue("Allocations in " + BIND_COUNT + " binds: " + allocations,
+                        allocations <= MAX_ALLOCATIONS);
+            }
+        });
+    }
+}
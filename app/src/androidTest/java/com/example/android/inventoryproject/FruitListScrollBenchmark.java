@@ -0,0 +1,149 @@
+package com.example.android.inventoryproject;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Instrumented benchmark that flings the list of fruits up and down and records the frame
+ * times (on Android 7.0 and higher, where the frame metrics are available). The fruits are in
+ * the database of the tests, see {@link TestInventoryApplication}. The statistics are reported
+ * in the instrumentation results. Given the 95th percentile of the frame time of a baseline
+ * build on the same device, in milliseconds, with "-e baselineP95FrameTimeMs 14", the test fails
+ * if the percentile is higher by more than the allowed percentage, given with
+ * "-e maxRegressionPercent 20" (10 by default).
+ */
+@RunWith(AndroidJUnit4.class)
+public class FruitListScrollBenchmark {
+
+    // Default allowed regression of the 95th percentile of the frame time, in percent.
+    private static final String DEFAULT_MAX_REGRESSION_PERCENT = "10";
+
+    private static final int FRUIT_COUNT = 1000;
+    private static final int FLING_COUNT = 10;
+    private static final int FLING_VELOCITY = 8000;
+    private static final long SCROLL_TIMEOUT_MILLIS = 10000;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private Activity activity;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = InstrumentationRegistry.getTargetContext();
+        context.getContentResolver().delete(FruitEntry.CONTENT_URI, null, null);
+        ContentValues[] fruits = new ContentValues[FRUIT_COUNT];
+        for (int i = 0; i < FRUIT_COUNT; i++) {
+            ContentValues values = new ContentValues();
+            values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Fruit " + i);
+            values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, i % 50);
+            values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, i % 20);
+            values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, "Supplier " + i % 7);
+            values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "555-0100");
+            fruits[i] = values;
+        }
+        context.getContentResolver().bulkInsert(FruitEntry.CONTENT_URI, fruits);
+    }
+
+    @After
+    public void tearDown() {
+        if (activity != null) {
+            activity.finish();
+        }
+        context.getContentResolver().delete(FruitEntry.CONTENT_URI, null, null);
+        // The activity saved the first page of the test fruits for the next start of the app.
+        new FruitListSnapshot(context).delete();
+    }
+
+    @Test
+    public void scroll_p95FrameTimeHasNotRegressed() {
+        assumeTrue("Frame metrics require Android 7.0", Build.VERSION.SDK_INT >= Build
+                .VERSION_CODES.N);
+        String baselineP95Millis = getArgument("baselineP95FrameTimeMs", null);
+        double maxRegressionPercent = Double.parseDouble(getArgument("maxRegressionPercent",
+                DEFAULT_MAX_REGRESSION_PERCENT));
+
+        activity = instrumentation.startActivitySync(new Intent(context, MainActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK));
+        final RecyclerView list = (RecyclerView) activity.findViewById(R.id
+                .recycler_view_fruits);
+        instrumentation.waitForIdleSync();
+
+        final FrameTimeCollector collector = new FrameTimeCollector();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                collector.start(activity);
+            }
+        });
+        for (int i = 0; i < FLING_COUNT; i++) {
+            // Down to load the next pages, then up and down again over the loaded ones.
+            final int velocity = i % 3 == 1 ? -FLING_VELOCITY : FLING_VELOCITY;
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    list.fling(0, velocity);
+                }
+            });
+            waitForScrollEnd(list);
+        }
+        final FrameTimeStats[] stats = new FrameTimeStats[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                stats[0] = collector.stop();
+            }
+        });
+
+        Bundle results = new Bundle();
+        results.putInt("frames", stats[0].getFrameCount());
+        results.putInt("jankyFrames", stats[0].getJankyFrameCount());
+        results.putInt("p50FrameTimeMs", stats[0].getPercentileMillis(50));
+        results.putInt("p90FrameTimeMs", stats[0].getPercentileMillis(90));
+        results.putInt("p95FrameTimeMs", stats[0].getPercentileMillis(95));
+        results.putInt("p99FrameTimeMs", stats[0].getPercentileMillis(99));
+        results.putString(Instrumentation.REPORT_KEY_STREAMRESULT, "Scroll: " + stats[0] + "\n");
+        instrumentation.sendStatus(0, results);
+
+        assertTrue("No frame recorded", stats[0].getFrameCount() > 0);
+        if (baselineP95Millis != null) {
+            double maxP95Millis = Integer.parseInt(baselineP95Millis) * (1 + maxRegressionPercent
+                    / 100);
+            assertTrue("Scroll: " + stats[0] + ", baseline p95 " + baselineP95Millis + " ms",
+                    stats[0].getPercentileMillis(95) <= maxP95Millis);
+        }
+    }
+
+    private void waitForScrollEnd(RecyclerView list) {
+        long deadline = SystemClock.uptimeMillis() + SCROLL_TIMEOUT_MILLIS;
+        do {
+            SystemClock.sleep(50);
+            instrumentation.waitForIdleSync();
+        } while (list.getScrollState() != RecyclerView.SCROLL_STATE_IDLE && SystemClock
+                .uptimeMillis() < deadline);
+    }
+
+    private static String getArgument(String key, String defaultValue) {
+        String value = InstrumentationRegistry.getArguments().getString(key);
+        return value == null ? defaultValue : value;
+    }
+}
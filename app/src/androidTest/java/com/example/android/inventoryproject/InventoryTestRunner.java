@@ -0,0 +1,19 @@
+package com.example.android.inventoryproject;
+
+import android.app.Application;
+import android.content.Context;
+import android.support.test.runner.AndroidJUnitRunner;
+
+/**
+ * Runner of the instrumented tests. It starts the app with the {@link TestInventoryApplication},
+ * which is created before the provider, so the provider opens the database of the tests.
+ */
+public class InventoryTestRunner extends AndroidJUnitRunner {
+
+    @Override
+    public Application newApplication(ClassLoader classLoader, String className, Context context)
+            throws InstantiationException, IllegalAccessException, ClassNotFoundException {
+        return super.newApplication(classLoader, TestInventoryApplication.class.getName(),
+                context);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.android.inventoryproject;
+
+import android.app.Instrumentation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark of the startup of the main activity: the time from the launch to the
+ * first frame showing fruits, and to the first frame showing the loaded first page. The
+ * activity is started once without the snapshot of the list, then once with the snapshot
+ * written by the first start. The times are reported in the instrumentation results, in
+ * milliseconds.
+ * <p>
+ * The test runs in the process of the app, so the provider and its database are already open:
+ * the times don't include the creation of the process. The fruits are in the database of the
+ * tests, see {@link TestInventoryApplication}, and the snapshot of their list is deleted
+ * afterwards, so the app doesn't show them at its next start.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int FRUIT_COUNT = 100;
+    private static final long STARTUP_TIMEOUT_MILLIS = 10000;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private MainActivity activity;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = InstrumentationRegistry.getTargetContext();
+        context.getContentResolver().delete(FruitEntry.CONTENT_URI, null, null);
+        ContentValues[] fruits = new ContentValues[FRUIT_COUNT];
+        for (int i = 0; i < FRUIT_COUNT; i++) {
+            ContentValues values = new ContentValues();
+            values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Fruit " + i);
+            values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, i % 50);
+            values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, i % 20);
+            values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, "Supplier " + i % 7);
+            values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "555-0100");
+            fruits[i] = values;
+        }
+        context.getContentResolver().bulkInsert(FruitEntry.CONTENT_URI, fruits);
+    }
+
+    @After
+    public void tearDown() {
+        if (activity != null) {
+            activity.finish();
+        }
+        context.getContentResolver().delete(FruitEntry.CONTENT_URI, null, null);
+        new FruitListSnapshot(context).delete();
+    }
+
+    @Test
+    public void startup_reportsTimeToFirstFrameAndFullList() {
+        FruitListSnapshot snapshot = new FruitListSnapshot(context);
+        snapshot.delete();
+        long[] withoutSnapshot = launch();
+
+        // The first start writes the snapshot in the background.
+        long deadline = SystemClock.uptimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (snapshot.read() == null && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(10);
+        }
+        assertNotNull("No snapshot written", snapshot.read());
+        long[] withSnapshot = launch();
+
+        Bundle results = new Bundle();
+        results.putLong("firstFrameMs", withoutSnapshot[0]);
+        results.putLong("fullListMs", withoutSnapshot[1]);
+        results.putLong("firstFrameWithSnapshotMs", withSnapshot[0]);
+        results.putLong("fullListWithSnapshotMs", withSnapshot[1]);
+        results.putString(Instrumentation.REPORT_KEY_STREAMRESULT, "Startup without snapshot: "
+                + "first frame " + withoutSnapshot[0] + " ms, full list " + withoutSnapshot[1]
+                + " ms\nStartup with snapshot: first frame " + withSnapshot[0]
+                + " ms, full list " + withSnapshot[1] + " ms\n");
+        instrumentation.sendStatus(0, results);
+
+        assertTrue(withSnapshot[0] <= withSnapshot[1]);
+    }
+
+    /**
+     * Start the main activity and wait until it shows the loaded first page, then finish it.
+     *
+     * @return the times from the launch to the first frame showing fruits and to the first
+     * frame showing the loaded first page, in milliseconds
+     */
+    private long[] launch() {
+        long launchTime = SystemClock.uptimeMillis();
+        activity = (MainActivity) instrumentation.startActivitySync(new Intent(context,
+                MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK));
+        final long[] times = new long[2];
+        long deadline = SystemClock.uptimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        do {
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    times[0] = activity.startupFirstFrameTime;
+                    times[1] = activity.startupFullListTime;
+                }
+            });
+            SystemClock.sleep(10);
+        } while (times[1] == 0 && SystemClock.uptimeMillis() < deadline);
+        assertTrue("The first page wasn't displayed", times[1] != 0);
+
+        activity.finish();
+        activity = null;
+        instrumentation.waitForIdleSync();
+        return new long[]{times[0] - launchTime, times[1] - launchTime};
+    }
+}
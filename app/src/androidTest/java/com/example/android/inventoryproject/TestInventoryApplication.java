@@ -0,0 +1,20 @@
+package com.example.android.inventoryproject;
+
+import com.example.android.inventoryproject.data.FruitDbHelper;
+
+/**
+ * {@link InventoryApplication} of the instrumented tests. The provider keeps its fruits in a
+ * database of the tests, so the tests can fill and empty it without touching the fruits of the
+ * app installed on the device.
+ */
+public class TestInventoryApplication extends InventoryApplication implements FruitDbHelper
+        .DatabaseNameSource {
+
+    // Name of the database file of the provider during the tests.
+    static final String DATABASE_NAME = "inventory-test.db";
+
+    @Override
+    public String getFruitDatabaseName() {
+        return DATABASE_NAME;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.inventoryproject.data;
+
+import android.app.Instrumentation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.android.inventoryproject.benchmark.BenchmarkResult;
+import com.example.android.inventoryproject.benchmark.BenchmarkRunner;
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark of the latency of the list queries while another thread keeps writing
+ * quantities, with write-ahead logging and with a rollback journal. It runs on the device, as
+ * the SQLite of Robolectric runs every statement on a single thread. The database is a scratch
+ * file, not the one of the app. The latencies are reported in the instrumentation results.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseConcurrencyBenchmark {
+
+    private static final String DATABASE_NAME = "concurrency-benchmark.db";
+
+    private static final int FRUIT_COUNT = 10000;
+    private static final int PAGE_SIZE = 50;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void readsDuringWrites_reportsTheLatencyWithAndWithoutWal() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS,
+                BenchmarkRunner.DEFAULT_MEASURED_ITERATIONS);
+        BenchmarkResult wal = measureReadsDuringWrites(runner, "readDuringWritesWal",
+                DatabaseSettings.DEFAULT);
+        context.deleteDatabase(DATABASE_NAME);
+        // The settings of a database opened without FruitDbHelper.
+        BenchmarkResult rollbackJournal = measureReadsDuringWrites(runner,
+                "readDuringWritesRollbackJournal", new DatabaseSettings(false, "FULL", 2048,
+                        1000));
+
+        Bundle results = new Bundle();
+        putResult(results, "wal", wal);
+        putResult(results, "rollbackJournal", rollbackJournal);
+        results.putString(Instrumentation.REPORT_KEY_STREAMRESULT, wal + "\n" + rollbackJournal
+                + "\n");
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, results);
+    }
+
+    /**
+     * Measure the query of a random page of the list on a database with the given settings,
+     * while another thread updates the quantities, each in its own transaction.
+     */
+    private BenchmarkResult measureReadsDuringWrites(BenchmarkRunner runner, String name,
+                                                     DatabaseSettings settings)
+            throws Exception {
+        FruitDbHelper dbHelper = new FruitDbHelper(context, DATABASE_NAME, settings);
+        final SQLiteDatabase database = dbHelper.getWritableDatabase();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final Exception[] writerError = new Exception[1];
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ContentValues values = new ContentValues();
+                try {
+                    for (int i = 0; !stop.get(); i++) {
+                        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, i % 20);
+                        database.update(FruitEntry.TABLE_NAME, values, FruitEntry._ID + " = ?",
+                                new String[]{String.valueOf(1 + i % FRUIT_COUNT)});
+                    }
+                } catch (Exception e) {
+                    writerError[0] = e;
+                }
+            }
+        });
+        try {
+            fill(database);
+            writer.start();
+            return runner.measure(name, FRUIT_COUNT, new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) {
+                    long afterId = (iteration * 7919L) % (FRUIT_COUNT - PAGE_SIZE);
+                    Cursor cursor = database.query(FruitEntry.TABLE_NAME, FruitEntry
+                            .SUMMARY_PROJECTION, FruitEntry._ID + " > ?", new String[]{String
+                            .valueOf(afterId)}, null, null, FruitEntry._ID, String.valueOf
+                            (PAGE_SIZE));
+                    try {
+                        assertEquals(PAGE_SIZE, cursor.getCount());
+                    } finally {
+                        cursor.close();
+                    }
+                }
+            });
+        } finally {
+            stop.set(true);
+            writer.join();
+            dbHelper.close();
+            if (writerError[0] != null) {
+                throw writerError[0];
+            }
+        }
+    }
+
+    private static void fill(SQLiteDatabase database) {
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < FRUIT_COUNT; i++) {
+                values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Fruit " + i);
+                values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, i % 50);
+                values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, i % 20);
+                values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, "Supplier " + i % 7);
+                values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "555-0100");
+                database.insert(FruitEntry.TABLE_NAME, null, values);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static void putResult(Bundle results, String prefix, BenchmarkResult result) {
+        results.putLong(prefix + "P50Nanos", result.p50Nanos);
+        results.putLong(prefix + "P90Nanos", result.p90Nanos);
+        results.putLong(prefix + "P99Nanos", result.p99Nanos);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.android.inventoryproject;
+
+import android.app.Activity;
+import android.support.v4.app.FrameMetricsAggregator;
+import android.util.SparseIntArray;
+
+/**
+ * Records the durations of the frames of an activity between {@link #start} and {@link #stop},
+ * such as while a list scrolls. The durations come from the frame metrics of the platform, so
+ * nothing is recorded before Android 7.0 (the statistics are then empty).
+ */
+public class FrameTimeCollector {
+
+    private final FrameMetricsAggregator aggregator = new FrameMetricsAggregator(
+            FrameMetricsAggregator.TOTAL_DURATION);
+
+    // Activity whose frames are being recorded, or null.
+    private Activity activity;
+
+    /**
+     * Start recording the frames of the activity. Does nothing if they are already recorded.
+     */
+    public void start(Activity activity) {
+        if (this.activity != null) {
+            return;
+        }
+        this.activity = activity;
+        aggregator.add(activity);
+    }
+
+    /**
+     * Return true between {@link #start} and {@link #stop}.
+     */
+    public boolean isStarted() {
+        return activity != null;
+    }
+
+    /**
+     * Stop recording, and return the statistics of the frames recorded since the start.
+     */
+    public FrameTimeStats stop() {
+        if (activity == null) {
+            return new FrameTimeStats(null);
+        }
+        SparseIntArray[] metrics = aggregator.remove(activity);
+        aggregator.reset();
+        activity = null;
+        return new FrameTimeStats(metrics == null ? null : metrics[FrameMetricsAggregator
+                .TOTAL_INDEX]);
+    }
+}
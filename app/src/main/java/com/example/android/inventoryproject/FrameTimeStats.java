@@ -0,0 +1,76 @@
+package com.example.android.inventoryproject;
+
+import android.util.SparseIntArray;
+
+/**
+ * Distribution of the durations of the frames drawn while a {@link FrameTimeCollector} was
+ * running, with a millisecond precision.
+ */
+public final class FrameTimeStats {
+
+    // A frame longer than this misses the next vsync at 60 Hz, and is janky.
+    public static final int JANK_THRESHOLD_MILLIS = 16;
+
+    // Number of frames of each duration, keyed by duration in milliseconds.
+    private final SparseIntArray durations;
+    private final int frameCount;
+
+    /**
+     * Constructs a new {@link FrameTimeStats}.
+     *
+     * @param durations the number of frames of each duration in milliseconds, or null if no
+     *                  frame was recorded
+     */
+    public FrameTimeStats(SparseIntArray durations) {
+        this.durations = durations == null ? new SparseIntArray() : durations.clone();
+        int count = 0;
+        for (int i = 0; i < this.durations.size(); i++) {
+            count += this.durations.valueAt(i);
+        }
+        frameCount = count;
+    }
+
+    /**
+     * Return the number of frames recorded.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Return the number of frames longer than {@link #JANK_THRESHOLD_MILLIS}.
+     */
+    public int getJankyFrameCount() {
+        int count = 0;
+        for (int i = 0; i < durations.size(); i++) {
+            if (durations.keyAt(i) > JANK_THRESHOLD_MILLIS) {
+                count += durations.valueAt(i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the duration in milliseconds that the given percentage of the frames don't exceed,
+     * or 0 if no frame was recorded.
+     */
+    public int getPercentileMillis(int percent) {
+        long rank = ((long) frameCount * percent + 99) / 100;
+        long seen = 0;
+        // The keys of a SparseIntArray are sorted.
+        for (int i = 0; i < durations.size(); i++) {
+            seen += durations.valueAt(i);
+            if (seen >= rank) {
+                return durations.keyAt(i);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return frameCount + " frames, " + getJankyFrameCount() + " janky, p50 "
+                + getPercentileMillis(50) + " ms, p90 " + getPercentileMillis(90) + " ms, p95 "
+                + getPercentileMillis(95) + " ms, p99 " + getPercentileMillis(99) + " ms";
+    }
+}
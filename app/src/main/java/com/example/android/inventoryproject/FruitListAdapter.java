@@ -0,0 +1,221 @@
+package com.example.android.inventoryproject;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.recyclerview.extensions.ListAdapter;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import com.example.android.inventoryproject.data.FruitContract;
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link FruitListAdapter} is the adapter for the RecyclerView used to display the information
+ * from the database in the Main Activity.
+ * Its data source is a list of {@link FruitSummary}, a snapshot of the fruits read by the
+ * loaders. When a new list is submitted, the difference with the current one is computed on a
+ * background thread, and only the rows that have changed are bound again.
+ */
+public class FruitListAdapter extends ListAdapter<FruitSummary, FruitListAdapter.ViewHolder> {
+
+    /**
+     * Two rows are the same item if they display the same fruit, and have the same contents if
+     * all their displayed columns are equal.
+     */
+    private static final DiffUtil.ItemCallback<FruitSummary> DIFF_CALLBACK = new DiffUtil
+            .ItemCallback<FruitSummary>() {
+        @Override
+        public boolean areItemsTheSame(FruitSummary oldItem, FruitSummary newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(FruitSummary oldItem, FruitSummary newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    // Names of the trace sections of the adapter, shown by systrace.
+    static final String TRACE_CREATE_VIEW_HOLDER = "FruitList.createViewHolder";
+    static final String TRACE_BIND_VIEW_HOLDER = "FruitList.bindViewHolder";
+    static final String TRACE_SUBMIT_LIST = "FruitList.submitList";
+
+    Context context;
+
+    // Executor the sales are written on, off the UI thread.
+    private final Executor backgroundExecutor;
+
+    /**
+     * Click listener shared by the Sale buttons of all the rows. The ID of the fruit is read from
+     * the {@link ViewHolder} set as the tag of the button.
+     * When the button is clicked on, it will decrease by 1 the quantity of the fruit.
+     */
+    private final View.OnClickListener salesButtonListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            ViewHolder holder = (ViewHolder) v.getTag();
+
+            // Create an URI to define which fruit we are going to update.
+            final Uri updateUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, holder
+                    .productId);
+
+            // Using the Content Provider, sell 1 kilogram of the fruit: its quantity is
+            // decreased directly in the database and the sale is recorded. The value can't be
+            // negative: if the quantity is already zero, nothing is sold. The sale runs the
+            // triggers of the sales, the ledger and the statistics, so it is written in the
+            // background. The list is reloaded once it is committed.
+            backgroundExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    FruitContract.sell(context.getContentResolver(), updateUri, 1);
+                }
+            });
+        }
+    };
+
+    /**
+     * Click listener shared by all the rows. It will open the ViewDetailsActivity, to see the
+     * details of the fruit.
+     */
+    private final View.OnClickListener itemListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            ViewHolder holder = (ViewHolder) v.getTag();
+            Intent intent = new Intent(context, ViewDetailsActivity.class);
+            Uri currentFruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, holder
+                    .productId);
+            intent.setData(currentFruitUri);
+            context.startActivity(intent);
+        }
+    };
+
+    /**
+     * Constructs a new {@link FruitListAdapter}, with no fruit to display.
+     *
+     * @param context            The context
+     * @param backgroundExecutor The executor the sales are written on. A single thread keeps
+     *                           them in the order of the taps.
+     */
+    public FruitListAdapter(Context context, Executor backgroundExecutor) {
+        super(DIFF_CALLBACK);
+        this.context = context;
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+    /**
+     * Makes a new blank list item view. No data is set (or bound) to the views yet.
+     * The views of the item are looked up once here and kept in the {@link ViewHolder}.
+     *
+     * @param parent   The parent to which the new view is attached to
+     * @param viewType The type of the new view (there is only one)
+     * @return the holder of the newly created list item view.
+     */
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TraceCompat.beginSection(TRACE_CREATE_VIEW_HOLDER);
+        try {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item,
+                    parent, false);
+            ViewHolder holder = new ViewHolder(view);
+
+            // The tag of the item and of its Sale Button is the holder, so the shared listeners
+            // know which fruit was clicked.
+            view.setTag(holder);
+            view.setOnClickListener(itemListener);
+            holder.salesButton.setFocusable(false);
+            holder.salesButton.setTag(holder);
+            holder.salesButton.setOnClickListener(salesButtonListener);
+            return holder;
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * This method binds the data of a fruit to the given list item. The text has already been
+     * read into the {@link FruitSummary}, so binding a row doesn't allocate anything.
+     *
+     * @param holder   Existing holder, returned earlier by onCreateViewHolder() method
+     * @param position The position of the fruit in the list
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        TraceCompat.beginSection(TRACE_BIND_VIEW_HOLDER);
+        try {
+            FruitSummary fruit = getItem(position);
+
+            // Update the TextViews with the attributes of the fruit.
+            holder.productId = fruit.id;
+            holder.nameTextView.setText(fruit.name);
+            holder.priceTextView.setText(fruit.price);
+            holder.quantityTextView.setText(fruit.quantity);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Submit a new snapshot of the list. The comparison with the current one runs in the
+     * background, only the submission is traced here.
+     */
+    @Override
+    public void submitList(List<FruitSummary> list) {
+        TraceCompat.beginSection(TRACE_SUBMIT_LIST);
+        try {
+            super.submitList(list);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Return true if the adapter currently displays the given list, that is if the comparison of
+     * the list submitted with {@link #submitList} is over.
+     */
+    boolean isShowing(List<FruitSummary> fruits) {
+        if (getItemCount() != fruits.size()) {
+            return false;
+        }
+        // The adapter keeps the submitted snapshots, even the ones equal to the previous ones.
+        for (int i = 0; i < fruits.size(); i++) {
+            if (getItem(i) != fruits.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the views of a list item and the ID of the fruit it displays.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView nameTextView;
+        final TextView priceTextView;
+        final TextView quantityTextView;
+        final Button salesButton;
+
+        // ID of the fruit currently displayed by the item.
+        long productId;
+
+        ViewHolder(View view) {
+            super(view);
+            nameTextView = (TextView) view.findViewById(R.id.name);
+            priceTextView = (TextView) view.findViewById(R.id.price);
+            quantityTextView = (TextView) view.findViewById(R.id.quantity);
+            salesButton = (Button) view.findViewById(R.id.sales_button);
+        }
+    }
+}
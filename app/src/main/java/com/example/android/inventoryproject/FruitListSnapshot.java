@@ -0,0 +1,127 @@
+package com.example.android.inventoryproject;
+
+import android.content.Context;
+import android.support.v4.util.AtomicFile;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copy of the top of the list of fruits, kept in a file of the cache so the list can be shown
+ * as soon as the app starts, before the provider has opened the database and loaded the first
+ * page. The copy may be out of date: the loaded page replaces it on the screen.
+ */
+final class FruitListSnapshot {
+
+    // Tag for the log messages
+    private static final String LOG_TAG = FruitListSnapshot.class.getSimpleName();
+
+    // Name of the file in the cache directory.
+    static final String FILE_NAME = "fruit_list_snapshot";
+
+    // Version of the format of the file. A file written with another version is ignored.
+    private static final int VERSION = 1;
+
+    // Maximum number of fruits read from a file, so a damaged file can't exhaust the memory.
+    private static final int MAX_FRUITS = 1000;
+
+    private final AtomicFile file;
+
+    FruitListSnapshot(Context context) {
+        file = new AtomicFile(new File(context.getCacheDir(), FILE_NAME));
+    }
+
+    /**
+     * Read the fruits of the snapshot.
+     *
+     * @return the fruits, in the order of the list, or null if there is no snapshot or it can't
+     * be read
+     */
+    List<FruitSummary> read() {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(file.openRead()));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            if (count < 0 || count > MAX_FRUITS) {
+                return null;
+            }
+            List<FruitSummary> fruits = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                fruits.add(new FruitSummary(in.readLong(), readString(in), readString(in),
+                        readString(in)));
+            }
+            return fruits;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to read the snapshot of the list", e);
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Nothing was written, there is nothing to lose.
+            }
+        }
+    }
+
+    /**
+     * Replace the snapshot with the given fruits. The previous snapshot is kept if the new one
+     * can't be written entirely. This does I/O, don't call it on the UI thread.
+     */
+    void write(List<FruitSummary> fruits) {
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(VERSION);
+            out.writeInt(fruits.size());
+            for (FruitSummary fruit : fruits) {
+                out.writeLong(fruit.id);
+                writeString(out, fruit.name);
+                writeString(out, fruit.price);
+                writeString(out, fruit.quantity);
+            }
+            // Don't close the stream, finishing the write syncs and closes it.
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to write the snapshot of the list", e);
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    /**
+     * Delete the snapshot, if there is one.
+     */
+    void delete() {
+        file.delete();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
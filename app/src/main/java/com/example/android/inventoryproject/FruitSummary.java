@@ -0,0 +1,77 @@
+package com.example.android.inventoryproject;
+
+import android.database.Cursor;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the columns of a fruit displayed by a row of the list (the
+ * {@link FruitEntry#SUMMARY_PROJECTION}). The price and quantity are kept as text, ready to be
+ * displayed.
+ */
+public final class FruitSummary {
+
+    final long id;
+    final String name;
+    final String price;
+    final String quantity;
+
+    FruitSummary(long id, String name, String price, String quantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    /**
+     * Read all the rows of the cursor. The position of the cursor is changed.
+     *
+     * @param cursor a cursor with the columns of {@link FruitEntry#SUMMARY_PROJECTION}
+     * @return the fruits of the cursor, in the same order
+     */
+    static List<FruitSummary> readAll(Cursor cursor) {
+        // Find the columns of the attributes we will use from the cursor.
+        int idColumnIndex = cursor.getColumnIndex(FruitEntry._ID);
+        int nameColumnIndex = cursor.getColumnIndex(FruitEntry.COLUMN_PRODUCT_NAME);
+        int priceColumnIndex = cursor.getColumnIndex(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG);
+        int quantityColumnIndex = cursor.getColumnIndex(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
+
+        List<FruitSummary> fruits = new ArrayList<>(cursor.getCount());
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            fruits.add(new FruitSummary(cursor.getLong(idColumnIndex), cursor.getString
+                    (nameColumnIndex), cursor.getString(priceColumnIndex), cursor.getString
+                    (quantityColumnIndex)));
+        }
+        return fruits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FruitSummary)) {
+            return false;
+        }
+        FruitSummary other = (FruitSummary) o;
+        return id == other.id && equals(name, other.name) && equals(price, other.price)
+                && equals(quantity, other.quantity);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (id ^ (id >>> 32));
+        result = 31 * result + (name == null ? 0 : name.hashCode());
+        result = 31 * result + (price == null ? 0 : price.hashCode());
+        result = 31 * result + (quantity == null ? 0 : quantity.hashCode());
+        return result;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
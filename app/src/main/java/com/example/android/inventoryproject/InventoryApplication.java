@@ -0,0 +1,17 @@
+package com.example.android.inventoryproject;
+
+import android.app.Application;
+
+import com.example.android.inventoryproject.data.LowStockWorker;
+
+/**
+ * {@link Application} of the Inventory app. It gives the provider the {@link LowStockNotifier}
+ * that shows its low stock alerts.
+ */
+public class InventoryApplication extends Application implements LowStockWorker.ListenerFactory {
+
+    @Override
+    public LowStockWorker.Listener createLowStockListener() {
+        return new LowStockNotifier(this);
+    }
+}
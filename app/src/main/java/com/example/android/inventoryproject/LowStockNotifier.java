@@ -0,0 +1,75 @@
+package com.example.android.inventoryproject;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.NotificationManagerCompat;
+
+import com.example.android.inventoryproject.data.LowStockEvent;
+import com.example.android.inventoryproject.data.LowStockWorker;
+
+import java.util.List;
+
+/**
+ * {@link LowStockWorker.Listener} that shows a notification listing the fruits to reorder.
+ * Each batch of alerts replaces the previous notification.
+ */
+public class LowStockNotifier implements LowStockWorker.Listener {
+
+    // ID of the notification channel of the alerts.
+    private static final String CHANNEL_ID = "low_stock";
+
+    // ID of the notification, so a new batch replaces the previous one.
+    private static final int NOTIFICATION_ID = 1;
+
+    private final Context context;
+
+    /**
+     * Constructs a new {@link LowStockNotifier}.
+     *
+     * @param context The context
+     */
+    public LowStockNotifier(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void onLowStock(List<LowStockEvent> events) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            // Creating an existing channel does nothing.
+            NotificationManager manager = (NotificationManager) context.getSystemService
+                    (Context.NOTIFICATION_SERVICE);
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, context
+                    .getString(R.string.low_stock_channel), NotificationManager
+                    .IMPORTANCE_DEFAULT));
+        }
+
+        StringBuilder names = new StringBuilder();
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (LowStockEvent event : events) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(event.name);
+            style.addLine(context.getString(R.string.low_stock_line, event.name, event
+                    .quantity));
+        }
+
+        // Clicking on the notification opens the list of fruits.
+        PendingIntent contentIntent = PendingIntent.getActivity(context, 0, new Intent(context,
+                MainActivity.class), PendingIntent.FLAG_UPDATE_CURRENT);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_warning)
+                .setContentTitle(context.getResources().getQuantityString(R.plurals
+                        .low_stock_title, events.size(), events.size()))
+                .setContentText(names)
+                .setStyle(style)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true);
+        NotificationManagerCompat.from(context).notify(NOTIFICATION_ID, builder.build());
+    }
+}
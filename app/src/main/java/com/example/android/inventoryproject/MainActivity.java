@@ -1,37 +1,212 @@
 package com.example.android.inventoryproject;
 
 import android.app.LoaderManager;
-import android.content.ContentUris;
 import android.content.ContentValues;
-import android.content.Context;
 import android.content.CursorLoader;
 import android.content.Intent;
 import android.content.Loader;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.support.design.widget.FloatingActionButton;
+import android.support.v4.os.TraceCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
-import android.widget.TextView;
+import android.view.ViewTreeObserver;
+import android.widget.EditText;
 
+import com.example.android.inventoryproject.data.FruitContract;
 import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Main Activity displays the list of products (fruits) that are stored in the inventory.
+ * The list is loaded page by page, while the user scrolls: each page has its own loader. Only
+ * a window of a few consecutive pages around the visible rows is kept loaded, the loaders of
+ * the pages that leave it are destroyed, so a change of the fruits only reloads a few pages.
+ * The pages are ranges of IDs loaded with the framework loaders the list already used, rather
+ * than with the Paging library, which would add it and the architecture components it needs to
+ * the dependencies for this single list. A range of IDs also keeps a page stable when fruits
+ * before it are deleted, where an offset would shift it.
+ * While some text is typed in the search box, the list shows the fruits matching the text
+ * instead. At startup, the list shows a snapshot of its first page until the page is loaded.
  */
 public class MainActivity extends AppCompatActivity implements LoaderManager
         .LoaderCallbacks<Cursor> {
 
-    // Global variable for the Cursor Adapter used to display the database information through a
-    // ListView.
-    FruitCursorAdapter fruitCursorAdapter;
+    // Tag for the log messages
+    private static final String LOG_TAG = MainActivity.class.getSimpleName();
+
+    // Number of fruits in each page of the list.
+    private static final int PAGE_SIZE = 50;
+
+    // Maximum number of pages loaded at once.
+    private static final int MAX_LOADED_PAGES = 5;
+
+    // ID of the loader of the search results, the pages use the IDs from 0.
+    private static final int SEARCH_LOADER_ID = -1;
+
+    // Maximum number of search results displayed.
+    private static final int SEARCH_LIMIT = 100;
+
+    // Time without typing after which the search starts, in milliseconds.
+    private static final long SEARCH_DELAY_MILLIS = 250;
+
+    // Keys of the loader arguments: the range of IDs of the page. A page without an "until" ID
+    // is the last page, it is limited to PAGE_SIZE fruits instead.
+    private static final String ARG_AFTER_ID = "afterId";
+    private static final String ARG_UNTIL_ID = "untilId";
+
+    // Key of the loader argument of the search: the text to search.
+    private static final String ARG_SEARCH_TEXT = "searchText";
+
+    // Name of the trace section of the delivery of a loaded page or search, shown by systrace.
+    private static final String TRACE_LOAD_FINISHED = "FruitList.loadFinished";
+
+    // Keys used to keep the bounds of the pages and the loaded window when the activity is
+    // recreated.
+    private static final String STATE_PAGE_AFTER_IDS = "pageAfterIds";
+    private static final String STATE_FIRST_LOADED_PAGE = "firstLoadedPage";
+    private static final String STATE_LAST_LOADED_PAGE = "lastLoadedPage";
+
+    // Global variable for the adapter used to display the database information through a
+    // RecyclerView.
+    FruitListAdapter fruitListAdapter;
+
+    // The pages of the list, with their index as loader ID. A page contains the fruits with an
+    // ID greater than its "after" ID and lower than or equal to the "after" ID of the next page.
+    // The bounds of every page seen are kept, the fruits only for the pages of the window that
+    // are loaded, the others are null.
+    private final ArrayList<Long> pageAfterIds = new ArrayList<>();
+    private final ArrayList<List<FruitSummary>> pageFruits = new ArrayList<>();
+
+    // First and last pages of the window, which have a loader. The adapter only shows the
+    // fruits of the window.
+    private int firstLoadedPage;
+    private int lastLoadedPage;
+
+    private RecyclerView fruitRecyclerView;
+
+    // Text of the current search, or null when the list shows the pages of all the fruits.
+    private String searchText;
+
+    // Results of the current search given to the adapter, and time of the keystroke that
+    // changed the search, to measure how long it takes to display them (0 once measured, or if
+    // the debug logs of the activity are disabled).
+    private List<FruitSummary> searchResults;
+    private long searchKeystrokeTime;
+
+    private final Handler searchHandler = new Handler();
+
+    // Records the frames drawn while the list scrolls, to log their jank when it stops.
+    private final FrameTimeCollector scrollFrameCollector = new FrameTimeCollector();
+
+    // Snapshot of the first page, shown at startup until the first page is loaded. The fruits
+    // of the snapshot are null once it has been replaced.
+    private FruitListSnapshot snapshot;
+    private List<FruitSummary> snapshotFruits;
+
+    // First page last written to the snapshot (or read from it), to only write the changes.
+    private List<FruitSummary> savedFirstPage;
+
+    // Executor used to write the snapshot and the sales of the list off the UI thread. It has a
+    // single thread, so the snapshots and the sales are written in order.
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+
+    // Startup times, from SystemClock.uptimeMillis(): creation of the activity, first frame
+    // showing fruits (or the loaded empty list), and first frame showing the loaded first page.
+    // The times not reached yet are 0.
+    private long startupCreateTime;
+    long startupFirstFrameTime;
+    long startupFullListTime;
+
+    // List given to the adapter with the loaded first page, until the startup is measured.
+    private List<FruitSummary> startupLoadedList;
+
+    // Starts the search once the user stops typing. Restarting the loader cancels the query of
+    // the previous text if it is still running.
+    private final Runnable searchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Bundle args = new Bundle();
+            args.putString(ARG_SEARCH_TEXT, searchText);
+            getLoaderManager().restartLoader(SEARCH_LOADER_ID, args, MainActivity.this);
+        }
+    };
+
+    // Logs the time between the last keystroke and the first frame showing its search results.
+    private final ViewTreeObserver.OnPreDrawListener searchLatencyListener = new
+            ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (searchResults == null) {
+                fruitRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+            } else if (fruitListAdapter.isShowing(searchResults)) {
+                Log.d(LOG_TAG, "Search \"" + searchText + "\": " + searchResults.size()
+                        + " fruits displayed " + (SystemClock.uptimeMillis()
+                        - searchKeystrokeTime) + " ms after the keystroke");
+                searchKeystrokeTime = 0;
+                fruitRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+            } else {
+                // The results are still being compared with the list in the background, check
+                // again at the next frame.
+                fruitRecyclerView.invalidate();
+            }
+            return true;
+        }
+    };
+
+    // Measures the startup: logs the time until the first frame showing fruits, and until the
+    // first frame showing the loaded first page, which is reported as fully drawn.
+    private final ViewTreeObserver.OnPreDrawListener startupListener = new ViewTreeObserver
+            .OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            long now = SystemClock.uptimeMillis();
+            boolean loadedListShown = startupLoadedList != null && fruitListAdapter.isShowing
+                    (startupLoadedList);
+            if (startupFirstFrameTime == 0 && (fruitListAdapter.getItemCount() != 0
+                    || loadedListShown)) {
+                startupFirstFrameTime = now;
+            }
+            if (loadedListShown) {
+                startupFullListTime = now;
+                startupLoadedList = null;
+                fruitRecyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    reportFullyDrawn();
+                }
+                if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+                    Log.d(LOG_TAG, "Startup: first fruits displayed " + (startupFirstFrameTime
+                            - startupCreateTime) + " ms and full list " + (startupFullListTime
+                            - startupCreateTime) + " ms after the creation");
+                }
+            } else if (startupLoadedList != null) {
+                // The loaded page is still being compared with the snapshot in the background,
+                // check again at the next frame.
+                fruitRecyclerView.invalidate();
+            }
+            return true;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startupCreateTime = SystemClock.uptimeMillis();
         setContentView(R.layout.activity_main);
 
         // Set up the Floating Action Button that will open the Editor Activity to add a new
@@ -45,29 +220,263 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
             }
         });
 
-        final ListView fruitListView = (ListView) findViewById(R.id.list_view_fruits);
+        fruitRecyclerView = (RecyclerView) findViewById(R.id.recycler_view_fruits);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        fruitRecyclerView.setLayoutManager(layoutManager);
+        fruitRecyclerView.addItemDecoration(new DividerItemDecoration(this, layoutManager
+                .getOrientation()));
 
-        // Find and set an empty view that will be displayed if there is no fruits in the database.
-        View emptyView = findViewById(R.id.empty_text_view);
-        fruitListView.setEmptyView(emptyView);
+        // Get the adapter to set up the RecyclerView of fruits. Clicking on an item will open
+        // the ViewDetailsActivity, to see the item details.
+        fruitListAdapter = new FruitListAdapter(this, backgroundExecutor);
+        fruitRecyclerView.setAdapter(fruitListAdapter);
 
-        // Get the CursorAdapter to set up the ListView of fruits.
-        fruitCursorAdapter = new FruitCursorAdapter(this, null);
-        fruitListView.setAdapter(fruitCursorAdapter);
+        // Find the empty view that will be displayed if there is no fruits in the database, and
+        // show or hide it each time the list changes.
+        final View emptyView = findViewById(R.id.empty_text_view);
+        fruitListAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                updateEmptyView();
+            }
 
-        // Define the action that will happen when an item of the ListView is clicked.
-        // It will open the ViewDetailsActivity, to see the item details.
-        fruitListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long id) {
-                Context context = fruitListView.getContext();
-                Intent intent = new Intent(context, ViewDetailsActivity.class);
-                Uri currentFruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, id);
-                intent.setData(currentFruitUri);
-                context.startActivity(intent);
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                updateEmptyView();
+            }
+
+            private void updateEmptyView() {
+                emptyView.setVisibility(fruitListAdapter.getItemCount() == 0 ? View.VISIBLE :
+                        View.GONE);
             }
         });
-        getLoaderManager().initLoader(0, null, this);
+
+        // Load the next or the previous page when the user gets close to an end of the loaded
+        // pages. This is also called after each layout of the list.
+        fruitRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (!Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+                    return;
+                }
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+                    scrollFrameCollector.start(MainActivity.this);
+                } else if (scrollFrameCollector.isStarted()) {
+                    FrameTimeStats stats = scrollFrameCollector.stop();
+                    if (stats.getFrameCount() != 0) {
+                        Log.d(LOG_TAG, "Scroll: " + stats);
+                    }
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (searchText != null) {
+                    return;
+                }
+                int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+                if (lastVisibleItem >= layoutManager.getItemCount() - PAGE_SIZE / 2) {
+                    loadNextPage();
+                } else if (layoutManager.findFirstVisibleItemPosition() < PAGE_SIZE / 2) {
+                    loadPreviousPage();
+                }
+            }
+        });
+
+        // Search the fruits as the user types, once the typing pauses.
+        EditText searchEditText = (EditText) findViewById(R.id.search_edit_text);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(s.toString().trim());
+            }
+        });
+
+        // Start (or reconnect to) the loaders of the pages of the window. Only the first page is
+        // loaded when the activity is created for the first time.
+        long[] savedAfterIds = savedInstanceState == null ? null : savedInstanceState
+                .getLongArray(STATE_PAGE_AFTER_IDS);
+        if (savedAfterIds == null) {
+            savedAfterIds = new long[]{0};
+        } else {
+            firstLoadedPage = savedInstanceState.getInt(STATE_FIRST_LOADED_PAGE);
+            lastLoadedPage = savedInstanceState.getInt(STATE_LAST_LOADED_PAGE);
+        }
+        for (long afterId : savedAfterIds) {
+            pageAfterIds.add(afterId);
+            pageFruits.add(null);
+        }
+        for (int page = firstLoadedPage; page <= lastLoadedPage; page++) {
+            getLoaderManager().initLoader(page, createPageArgs(page), this);
+        }
+
+        // Until the first page is loaded, show the snapshot of the previous run. The file is
+        // small, reading it is much quicker than opening the database and querying it. A
+        // recreated activity gets its pages from the loaders right away instead.
+        snapshot = new FruitListSnapshot(this);
+        fruitRecyclerView.getViewTreeObserver().addOnPreDrawListener(startupListener);
+        if (savedInstanceState == null && pageFruits.get(0) == null) {
+            snapshotFruits = snapshot.read();
+            savedFirstPage = snapshotFruits;
+            submitPages();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchHandler.removeCallbacks(searchRunnable);
+        scrollFrameCollector.stop();
+        fruitRecyclerView.getViewTreeObserver().removeOnPreDrawListener(startupListener);
+        // Let the pending snapshot and sales be written, but don't accept new ones.
+        backgroundExecutor.shutdown();
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        long[] afterIds = new long[pageAfterIds.size()];
+        for (int page = 0; page < afterIds.length; page++) {
+            afterIds[page] = pageAfterIds.get(page);
+        }
+        outState.putLongArray(STATE_PAGE_AFTER_IDS, afterIds);
+        outState.putInt(STATE_FIRST_LOADED_PAGE, firstLoadedPage);
+        outState.putInt(STATE_LAST_LOADED_PAGE, lastLoadedPage);
+    }
+
+    /**
+     * Create the loader arguments of the given page: its range of IDs, which is open-ended for
+     * the last page.
+     */
+    private Bundle createPageArgs(int page) {
+        Bundle args = new Bundle();
+        args.putLong(ARG_AFTER_ID, pageAfterIds.get(page));
+        if (page + 1 < pageAfterIds.size()) {
+            args.putLong(ARG_UNTIL_ID, pageAfterIds.get(page + 1));
+        }
+        return args;
+    }
+
+    /**
+     * Start loading the page following the window, if there is one, and unload the first page of
+     * the window if it gets too large.
+     */
+    private void loadNextPage() {
+        List<FruitSummary> lastFruits = pageFruits.get(lastLoadedPage);
+        // Wait until the last page of the window is loaded.
+        if (lastFruits == null) {
+            return;
+        }
+        if (lastLoadedPage == pageAfterIds.size() - 1) {
+            // If the last page isn't full, there is nothing more to load.
+            if (lastFruits.size() < PAGE_SIZE) {
+                return;
+            }
+            long lastId = lastFruits.get(lastFruits.size() - 1).id;
+
+            // The last page now ends at its last fruit, so its rows don't move into the next
+            // page when fruits are deleted.
+            pageAfterIds.add(lastId);
+            pageFruits.add(null);
+            getLoaderManager().restartLoader(lastLoadedPage, createPageArgs(lastLoadedPage),
+                    this);
+        }
+        lastLoadedPage++;
+        getLoaderManager().initLoader(lastLoadedPage, createPageArgs(lastLoadedPage), this);
+        if (lastLoadedPage - firstLoadedPage >= MAX_LOADED_PAGES) {
+            unloadPage(firstLoadedPage++);
+        }
+    }
+
+    /**
+     * Start loading the page preceding the window, if there is one, and unload the last page of
+     * the window if it gets too large.
+     */
+    private void loadPreviousPage() {
+        // Wait until the first page of the window is loaded.
+        if (firstLoadedPage == 0 || pageFruits.get(firstLoadedPage) == null) {
+            return;
+        }
+        firstLoadedPage--;
+        getLoaderManager().initLoader(firstLoadedPage, createPageArgs(firstLoadedPage), this);
+        if (lastLoadedPage - firstLoadedPage >= MAX_LOADED_PAGES) {
+            unloadPage(lastLoadedPage--);
+        }
+    }
+
+    /**
+     * Destroy the loader of a page that left the window, and drop its fruits.
+     */
+    private void unloadPage(int page) {
+        getLoaderManager().destroyLoader(page);
+        pageFruits.set(page, null);
+        submitPages();
+    }
+
+    /**
+     * Show the fruits matching the given text, or all the fruits if the text is empty. The
+     * search only starts after {@link #SEARCH_DELAY_MILLIS} without any other change, so there
+     * is a single query when the user types a word.
+     */
+    private void search(String text) {
+        if (text.equals(searchText == null ? "" : searchText)) {
+            return;
+        }
+        // The latency is only measured when it is logged, like the jank of the scrolls.
+        searchKeystrokeTime = Log.isLoggable(LOG_TAG, Log.DEBUG) ? SystemClock.uptimeMillis()
+                : 0;
+        searchHandler.removeCallbacks(searchRunnable);
+        if (text.isEmpty()) {
+            searchText = null;
+            searchResults = null;
+            getLoaderManager().destroyLoader(SEARCH_LOADER_ID);
+            submitPages();
+            return;
+        }
+        searchText = text;
+        searchHandler.postDelayed(searchRunnable, SEARCH_DELAY_MILLIS);
+    }
+
+    /**
+     * Give the adapter a single list made of the consecutive pages of the window loaded so far.
+     * A page being loaded at the start of the window is skipped, so the list doesn't empty while
+     * the user scrolls back. The adapter compares the list to the current one in the background
+     * and only updates the rows that changed. Before the first page is loaded, the snapshot of
+     * the previous run is given instead.
+     *
+     * @return the list given to the adapter, or null if the adapter shows search results
+     */
+    private List<FruitSummary> submitPages() {
+        if (searchText != null) {
+            return null;
+        }
+        if (pageFruits.get(0) == null && snapshotFruits != null) {
+            fruitListAdapter.submitList(snapshotFruits);
+            return snapshotFruits;
+        }
+        ArrayList<FruitSummary> fruits = new ArrayList<>();
+        int page = firstLoadedPage;
+        while (page < lastLoadedPage && pageFruits.get(page) == null) {
+            page++;
+        }
+        for (; page <= lastLoadedPage && pageFruits.get(page) != null; page++) {
+            fruits.addAll(pageFruits.get(page));
+        }
+        fruitListAdapter.submitList(fruits);
+        return fruits;
     }
 
     /**
@@ -75,24 +484,102 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
      */
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        // Define a projection that specifies which columns from the database will be queried.
-        String[] projection = {FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_NAME, FruitEntry
-                .COLUMN_PRODUCT_PRICE_PER_KG, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG,
-                FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, FruitEntry
-                .COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER};
+        // The list only queries the columns displayed by its rows.
+        String[] projection = FruitEntry.SUMMARY_PROJECTION;
+
+        if (id == SEARCH_LOADER_ID) {
+            Uri searchUri = FruitEntry.buildSearchUri(args.getString(ARG_SEARCH_TEXT))
+                    .buildUpon()
+                    .appendQueryParameter(FruitContract.QUERY_PARAMETER_LIMIT, String.valueOf
+                            (SEARCH_LIMIT))
+                    .build();
+            return new CursorLoader(this, searchUri, projection, null, null, null);
+        }
 
         // Perform a query on the provider using the ContentResolver.
-        // Use the {@link FruitEntry#CONTENT_URI} to access the fruit data.
-        return new CursorLoader(this, FruitEntry.CONTENT_URI, projection, null, null, null);
+        // Use a page of the {@link FruitEntry#SUMMARY_URI} to access the fruit data.
+        long afterId = args.getLong(ARG_AFTER_ID);
+        Uri pageUri;
+        if (args.containsKey(ARG_UNTIL_ID)) {
+            pageUri = FruitEntry.buildRangeUri(FruitEntry.SUMMARY_URI, afterId, args.getLong
+                    (ARG_UNTIL_ID));
+        } else {
+            pageUri = FruitEntry.buildPageUri(FruitEntry.SUMMARY_URI, afterId, PAGE_SIZE);
+        }
+        return new CursorLoader(this, pageUri, projection, null, null, null);
     }
 
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
-        fruitCursorAdapter.swapCursor(cursor);
+        TraceCompat.beginSection(TRACE_LOAD_FINISHED);
+        try {
+            deliverLoadedFruits(loader, cursor);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Read the fruits of a finished loader and give them to the adapter, if they are still the
+     * ones displayed.
+     */
+    private void deliverLoadedFruits(Loader<Cursor> loader, Cursor cursor) {
+        if (loader.getId() == SEARCH_LOADER_ID) {
+            // Only display the results of the latest search text.
+            String loadedText = ((CursorLoader) loader).getUri().getQueryParameter(FruitContract
+                    .QUERY_PARAMETER_SEARCH);
+            if (!loadedText.equals(searchText)) {
+                return;
+            }
+            searchResults = FruitSummary.readAll(cursor);
+            fruitListAdapter.submitList(searchResults);
+            // Measure the latency of the first results after a keystroke, not of the reloads
+            // caused by changes of the fruits.
+            if (searchKeystrokeTime != 0) {
+                ViewTreeObserver observer = fruitRecyclerView.getViewTreeObserver();
+                observer.removeOnPreDrawListener(searchLatencyListener);
+                observer.addOnPreDrawListener(searchLatencyListener);
+                fruitRecyclerView.invalidate();
+            }
+            return;
+        }
+        // Keep a snapshot of the page, the cursor itself is closed by the loader.
+        pageFruits.set(loader.getId(), FruitSummary.readAll(cursor));
+        if (loader.getId() == 0) {
+            snapshotFruits = null;
+            saveFirstPage(pageFruits.get(0));
+        }
+        List<FruitSummary> submitted = submitPages();
+        if (loader.getId() == 0 && startupFullListTime == 0 && submitted != null) {
+            startupLoadedList = submitted;
+            fruitRecyclerView.invalidate();
+        }
+    }
+
+    /**
+     * Write the loaded first page to the snapshot shown by the next startup, in the background,
+     * unless it is already there.
+     */
+    private void saveFirstPage(final List<FruitSummary> fruits) {
+        if (fruits.equals(savedFirstPage) || backgroundExecutor.isShutdown()) {
+            return;
+        }
+        savedFirstPage = fruits;
+        final FruitListSnapshot target = snapshot;
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                target.write(fruits);
+            }
+        });
     }
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
-        fruitCursorAdapter.swapCursor(null);
+        if (loader.getId() == SEARCH_LOADER_ID) {
+            return;
+        }
+        pageFruits.set(loader.getId(), null);
+        submitPages();
     }
 }
@@ -6,7 +6,6 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.app.AlertDialog;
 import android.app.LoaderManager;
-import android.content.ContentValues;
 import android.content.CursorLoader;
 import android.content.DialogInterface;
 import android.content.Intent;
@@ -29,6 +28,9 @@ import com.example.android.inventoryproject.data.FruitContract;
 import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
 import com.example.android.inventoryproject.data.FruitProvider;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * This activity is used to see all the details of a single product.
  */
@@ -48,6 +50,13 @@ public class ViewDetailsActivity extends AppCompatActivity implements LoaderMana
     private TextView supplierNameEditText;
     private TextView supplierPhoneEditText;
 
+    // Phone number of the supplier, kept from the row delivered by the loader.
+    private String currentFruitSupplierPhoneNumber;
+
+    // Executor used to write the quantity changes off the UI thread. It has a single thread, so
+    // the changes are applied in the order of the button presses.
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -110,64 +119,44 @@ public class ViewDetailsActivity extends AppCompatActivity implements LoaderMana
      * This is the method used by the minus button to decrease the product quantity by 1.
      */
     public void quantityMinusOne() {
-        // Define a projection that specifies which columns from the database will be queried.
-        String[] projection = {FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG};
-        // Perform a query on the provider using the ContentResolver. It is done on a background
-        // thread with the CursorLoader.
-        Cursor cursor = new CursorLoader(ViewDetailsActivity.this, currentFruitUri, projection,
-                null, null, null).loadInBackground();
-
-        // Move to the first row of the cursor and retrieve we need the data from it (the product
-        // quantity).
-        cursor.moveToFirst();
-        int quantityColumnIndex = cursor.getColumnIndex(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
-        int currentFruitQuantity = cursor.getInt(quantityColumnIndex);
-
-        // The value can't be negative. If the quantity is already zero, don't decrease.
-        if (currentFruitQuantity == 0) {
-            return;
-        } else {
-            currentFruitQuantity = currentFruitQuantity - 1;
-        }
-        // Update the fruit quantity displayed on the screen.
-        quantityEditText.setText(Integer.toString(currentFruitQuantity));
-
-        // Using the Content Provider, update the fruit quantity value in the database.
-        ContentValues values = new ContentValues();
-        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, currentFruitQuantity);
-        getContentResolver().update(currentFruitUri, values, FruitEntry
-                .COLUMN_PRODUCT_QUANTITY_IN_KG, null);
-        cursor.close();
+        // The value can't be negative: if the quantity is already zero, it is not decreased.
+        adjustQuantityInBackground(-1);
     }
 
     /**
      * This is the method used by the plus button to increase the product quantity by 1.
      */
     public void quantityPlusOne() {
-        // Define a projection that specifies which columns from the database will be queried.
-        String[] projection = {FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG};
-        // Perform a query on the provider using the ContentResolver. It is done on a background
-        // thread with the CursorLoader.
-        Cursor cursor = new CursorLoader(ViewDetailsActivity.this, currentFruitUri, projection,
-                null, null, null).loadInBackground();
-
-        // Move to the first row of the cursor and retrieve the data we need from it (the product
-        // quantity).
-        cursor.moveToFirst();
-        int quantityColumnIndex = cursor.getColumnIndex(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
-        int currentFruitQuantity = cursor.getInt(quantityColumnIndex);
-
-        // Increase the fruit quantity by 1.
-        currentFruitQuantity = currentFruitQuantity + 1;
-        // Update the fruit quantity displayed on the screen.
-        quantityEditText.setText(Integer.toString(currentFruitQuantity));
-
-        // Using the Content Provider, update the fruit quantity value in the database.
-        ContentValues values = new ContentValues();
-        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, currentFruitQuantity);
-        getContentResolver().update(currentFruitUri, values, FruitEntry
-                .COLUMN_PRODUCT_QUANTITY_IN_KG, null);
-        cursor.close();
+        adjustQuantityInBackground(1);
+    }
+
+    /**
+     * Using the Content Provider, add the given delta to the fruit quantity directly in the
+     * database. The database is updated on the background executor, then the new quantity is
+     * displayed on the screen from the UI thread.
+     */
+    private void adjustQuantityInBackground(final int delta) {
+        final Uri fruitUri = currentFruitUri;
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int currentFruitQuantity = FruitContract.adjustQuantity
+                        (getContentResolver(), fruitUri, delta);
+                // Nothing to display if the quantity has not been updated.
+                if (currentFruitQuantity == -1) {
+                    return;
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Update the fruit quantity displayed on the screen.
+                        if (!isFinishing()) {
+                            quantityEditText.setText(Integer.toString(currentFruitQuantity));
+                        }
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -175,19 +164,11 @@ public class ViewDetailsActivity extends AppCompatActivity implements LoaderMana
      * supplier.
      */
     public void orderProductByPhone() {
-        // Define a projection that specifies which columns from the database will be queried.
-        String[] projection = {FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER};
-        // Perform a query on the provider using the ContentResolver. It is done on a background
-        // thread with the CursorLoader.
-        Cursor cursor = new CursorLoader(ViewDetailsActivity.this, currentFruitUri, projection,
-                null, null, null).loadInBackground();
-
-        // Move to the first row of the cursor and retrieve the data we need from it (the phone
-        // number of the product supplier).
-        cursor.moveToFirst();
-        int supplierPhoneNumberColumnIndex = cursor.getColumnIndex(FruitEntry
-                .COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER);
-        String currentFruitSupplierPhoneNumber = cursor.getString(supplierPhoneNumberColumnIndex);
+        // The phone number of the product supplier comes from the row already loaded by the
+        // loader, so there is nothing to query here. Bail early if it is not loaded yet.
+        if (currentFruitSupplierPhoneNumber == null) {
+            return;
+        }
 
         // Using an intent to a phone app, we call the phone number we retrieved.
         Intent intent = new Intent(Intent.ACTION_DIAL);
@@ -197,6 +178,13 @@ public class ViewDetailsActivity extends AppCompatActivity implements LoaderMana
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Let the pending quantity updates finish, but don't accept new ones.
+        backgroundExecutor.shutdown();
+    }
+
 
     /**
      * The loader will executive the ContentProvider's query method on a background thread.
@@ -243,11 +231,15 @@ public class ViewDetailsActivity extends AppCompatActivity implements LoaderMana
             priceEditText.setText(Integer.toString(price));
             supplierNameEditText.setText(supplierName);
             supplierPhoneEditText.setText(supplierPhone);
+
+            // Keep the phone number for the order button.
+            currentFruitSupplierPhoneNumber = supplierPhone;
         }
     }
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
+        currentFruitSupplierPhoneNumber = null;
         // If the loader is invalidated, clear out all the data from the input fields.
         nameEditText.setText("");
         quantityEditText.setText("");
@@ -0,0 +1,50 @@
+package com.example.android.inventoryproject.data;
+
+/**
+ * Connection settings applied by {@link FruitDbHelper} to the primary connection each time the
+ * database is opened.
+ */
+public final class DatabaseSettings {
+
+    /**
+     * Settings used by the app: with write-ahead logging, NORMAL synchronous mode is safe from
+     * corruption and only fsyncs on checkpoints.
+     */
+    public static final DatabaseSettings DEFAULT = new DatabaseSettings(true, "NORMAL", 2048,
+            1000);
+
+    // Whether write-ahead logging is enabled, so reads don't wait for writes.
+    final boolean writeAheadLogging;
+
+    // SQLite synchronous mode: OFF, NORMAL, FULL or EXTRA.
+    final String synchronousMode;
+
+    // Size of the page cache of the primary connection, in kibibytes. The read-only connections
+    // opened with write-ahead logging keep the default size.
+    final int cacheSizeKib;
+
+    // Number of pages in the write-ahead log that triggers an automatic checkpoint.
+    final int walAutoCheckpointPages;
+
+    /**
+     * Constructs a new {@link DatabaseSettings}.
+     *
+     * @param writeAheadLogging      true to enable write-ahead logging and concurrent readers
+     * @param synchronousMode        the SQLite synchronous mode (OFF, NORMAL, FULL or EXTRA)
+     * @param cacheSizeKib           the size of the page cache, in kibibytes
+     * @param walAutoCheckpointPages the size of the log that triggers a checkpoint, in pages
+     */
+    public DatabaseSettings(boolean writeAheadLogging, String synchronousMode, int cacheSizeKib,
+                            int walAutoCheckpointPages) {
+        if (!synchronousMode.matches("OFF|NORMAL|FULL|EXTRA")) {
+            throw new IllegalArgumentException("Unknown synchronous mode " + synchronousMode);
+        }
+        if (cacheSizeKib <= 0 || walAutoCheckpointPages < 0) {
+            throw new IllegalArgumentException("Invalid cache size or checkpoint threshold");
+        }
+        this.writeAheadLogging = writeAheadLogging;
+        this.synchronousMode = synchronousMode;
+        this.cacheSizeKib = cacheSizeKib;
+        this.walAutoCheckpointPages = walAutoCheckpointPages;
+    }
+}
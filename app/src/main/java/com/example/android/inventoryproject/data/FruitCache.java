@@ -0,0 +1,212 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the rows of the fruits table, indexed by ID. When it is full, the least
+ * recently used row is evicted.
+ * The {@link FruitProvider} keeps in it the rows it reads by ID and the rows it inserts, so
+ * opening the details of a fruit that was just displayed or added doesn't read the database
+ * again. The rows it updates or deletes are removed once the write is committed.
+ * The cached rows are never modified.
+ */
+class FruitCache {
+
+    // Default maximum number of rows kept in the cache.
+    static final int DEFAULT_MAX_ROWS = 256;
+
+    // All the columns of a fruit, in the order of the table.
+    static final String[] COLUMNS = {FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_NAME, FruitEntry
+            .COLUMN_PRODUCT_PRICE_PER_KG, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, FruitEntry
+            .COLUMN_PRODUCT_SUPPLIER_NAME, FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+            FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD};
+
+    private final int maxRows;
+
+    // Rows of the cache, from the least to the most recently used.
+    private final LinkedHashMap<Long, ContentValues> rows;
+
+    // Incremented by each write, so a row read from the database before a write isn't cached
+    // after it.
+    private long version;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructs a new {@link FruitCache}.
+     *
+     * @param maxRows the maximum number of rows kept in the cache
+     */
+    FruitCache(int maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("Invalid cache size " + maxRows);
+        }
+        this.maxRows = maxRows;
+        this.rows = new LinkedHashMap<Long, ContentValues>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ContentValues> eldest) {
+                if (size() > FruitCache.this.maxRows) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached row of the given fruit, or null if it is not in the cache. The row must
+     * not be modified.
+     */
+    synchronized ContentValues get(long id) {
+        ContentValues row = rows.get(id);
+        if (row == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return row;
+    }
+
+    /**
+     * Return the current version of the cache, to give to {@link #putIfUnchanged} once the row
+     * has been read from the database.
+     */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Keep a row read from the database, unless a write has been made since the given version:
+     * the row could then be older than the data in the database.
+     *
+     * @param row a row with all the {@link #COLUMNS}, as returned by {@link #readRow}
+     */
+    synchronized void putIfUnchanged(long id, ContentValues row, long version) {
+        if (this.version == version) {
+            rows.put(id, row);
+        }
+    }
+
+    /**
+     * Keep the row of a fruit that has just been inserted with the given values. The columns
+     * missing from the values get the defaults of the table.
+     */
+    synchronized void insert(long id, ContentValues values) {
+        version++;
+        ContentValues row = new ContentValues();
+        row.put(FruitEntry._ID, id);
+        row.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, 1L);
+        row.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, 1L);
+        row.put(FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD, 0L);
+        if (merge(row, values)) {
+            rows.put(id, row);
+        }
+    }
+
+    /**
+     * Remove a fruit from the cache.
+     */
+    synchronized void remove(long id) {
+        version++;
+        rows.remove(id);
+    }
+
+    /**
+     * Remove all the fruits from the cache.
+     */
+    synchronized void clear() {
+        version++;
+        rows.clear();
+    }
+
+    /**
+     * Copy the written values into the row, the way SQLite would store them. Return false if a
+     * value can't be copied exactly: a column that doesn't exist, or some text written to a
+     * number column (which SQLite may or may not convert).
+     */
+    private static boolean merge(ContentValues row, ContentValues values) {
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            String column = entry.getKey();
+            Object value = entry.getValue();
+            if (column.equals(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG)
+                    || column.equals(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG)
+                    || column.equals(FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD)) {
+                if (!(value instanceof Integer || value instanceof Long
+                        || value instanceof Short || value instanceof Byte)) {
+                    return false;
+                }
+                row.put(column, ((Number) value).longValue());
+            } else if (column.equals(FruitEntry.COLUMN_PRODUCT_NAME)
+                    || column.equals(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME)
+                    || column.equals(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER)) {
+                row.put(column, value == null ? null : value.toString());
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the current row of a cursor over all the {@link #COLUMNS}.
+     */
+    static ContentValues readRow(Cursor cursor) {
+        ContentValues row = new ContentValues(COLUMNS.length);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    row.putNull(COLUMNS[i]);
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    row.put(COLUMNS[i], cursor.getLong(i));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    row.put(COLUMNS[i], cursor.getDouble(i));
+                    break;
+                default:
+                    row.put(COLUMNS[i], cursor.getString(i));
+                    break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Return a cursor over the given columns of a row, or over all the columns if the
+     * projection is null. A null row gives an empty cursor.
+     */
+    static Cursor toCursor(ContentValues row, String[] projection) {
+        String[] columns = projection == null ? COLUMNS : projection;
+        MatrixCursor cursor = new MatrixCursor(columns, 1);
+        if (row != null) {
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = row.get(columns[i]);
+            }
+            cursor.addRow(values);
+        }
+        return cursor;
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.android.inventoryproject.data;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.net.Uri;
+import android.os.Bundle;
 import android.provider.BaseColumns;
 
 //This is the Contract class that defines the name of tables and constants.
@@ -19,6 +21,166 @@ public final class FruitContract {
     // One of the possible path added after the base URI for the Content Provider.
     public static final String PATH_FRUITS = "Fruits";
 
+    // Path of the summary of the fruits, with only the columns displayed by the list.
+    public static final String PATH_FRUITS_SUMMARY = PATH_FRUITS + "/summary";
+
+    // Path of the full-text search over the fruits.
+    public static final String PATH_FRUITS_SEARCH = PATH_FRUITS + "/search";
+
+    // Query parameter of the search URI: the text searched in the names and supplier names.
+    public static final String QUERY_PARAMETER_SEARCH = "q";
+
+    // Path of the statistics of the whole inventory.
+    public static final String PATH_FRUITS_STATS = PATH_FRUITS + "/stats";
+
+    // Path of the ledger of the stock movements.
+    public static final String PATH_FRUITS_MOVEMENTS = PATH_FRUITS + "/movements";
+
+    // Paths of the sales, and of their hourly and daily rollups.
+    public static final String PATH_SALES = PATH_FRUITS + "/sales";
+    public static final String PATH_SALES_HOURLY = PATH_SALES + "/hourly";
+    public static final String PATH_SALES_DAILY = PATH_SALES + "/daily";
+
+    // Path of the CSV export of the fruits table.
+    public static final String PATH_FRUITS_EXPORT = PATH_FRUITS + "/export";
+
+    // Path notified once for each write on the fruits table.
+    public static final String PATH_FRUITS_CHANGES = PATH_FRUITS + "/changes";
+
+    // Query parameters that can be added to FruitEntry.CONTENT_URI to query a single page of
+    // fruits. AFTER_ID and UNTIL_ID restrict the query to a range of IDs (keyset paging),
+    // LIMIT and OFFSET limit the number of rows returned.
+    public static final String QUERY_PARAMETER_AFTER_ID = "after_id";
+    public static final String QUERY_PARAMETER_UNTIL_ID = "until_id";
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+    public static final String QUERY_PARAMETER_OFFSET = "offset";
+
+    // Name of the provider method that atomically adds a delta to the quantity of a fruit.
+    public static final String METHOD_ADJUST_QUANTITY = "adjustQuantity";
+
+    // Extras used by the METHOD_ADJUST_QUANTITY call.
+    // The ID of the fruit to update (long) and the delta to add to its quantity (int).
+    public static final String EXTRA_FRUIT_ID = "fruitId";
+    public static final String EXTRA_QUANTITY_DELTA = "quantityDelta";
+    // The quantity after the update (int), only present if the quantity has been updated.
+    public static final String EXTRA_NEW_QUANTITY = "newQuantity";
+
+    // Name of the provider method that sells some kilograms of a fruit: the quantity is
+    // decreased and the sale is recorded, in a single transaction. Its extras are the ID of the
+    // fruit (EXTRA_FRUIT_ID) and the quantity sold (int, positive). The result has the
+    // EXTRA_NEW_QUANTITY if the fruit has been sold (there was enough of it).
+    public static final String METHOD_SELL = "sell";
+    public static final String EXTRA_QUANTITY_SOLD = "quantitySold";
+
+    // Name of the provider method that reads (and optionally changes) the settings of the change
+    // notifications. The notifications of a URI are coalesced over a window: the optional extra
+    // is the new length of the window in milliseconds (long, 0 to notify right away). The result
+    // has the current window and the number of notifications saved so far (long).
+    public static final String METHOD_CONFIGURE_NOTIFICATIONS = "configureNotifications";
+    public static final String EXTRA_NOTIFICATION_WINDOW_MILLIS = "notificationWindowMillis";
+    public static final String EXTRA_NOTIFICATIONS_SAVED = "notificationsSaved";
+
+    // Name of the provider method that returns the counters of the cache of the fruit rows read
+    // by ID: the number of lookups found in the cache, the number of lookups that had to read the
+    // database and the number of rows evicted to make room for others (long).
+    public static final String METHOD_GET_CACHE_STATS = "getCacheStats";
+    public static final String EXTRA_CACHE_HITS = "cacheHits";
+    public static final String EXTRA_CACHE_MISSES = "cacheMisses";
+    public static final String EXTRA_CACHE_EVICTIONS = "cacheEvictions";
+
+    // Name of the provider method that compares the statistics of the inventory with a full
+    // recompute from the fruits table, and rebuilds them if they differ. The result tells if
+    // they were consistent (boolean).
+    public static final String METHOD_CHECK_STATS = "checkStats";
+    public static final String EXTRA_STATS_CONSISTENT = "statsConsistent";
+
+    // Name of the provider method that folds the stock movements into the snapshots of the
+    // quantities, then removes the movements older than the retention period. The optional
+    // extra is the retention period in milliseconds (long), the result has the number of
+    // movements removed (int).
+    public static final String METHOD_COMPACT_LEDGER = "compactLedger";
+    public static final String EXTRA_RETENTION_MILLIS = "retentionMillis";
+    public static final String EXTRA_MOVEMENTS_REMOVED = "movementsRemoved";
+
+    // Name of the provider method that replays the ledger (the snapshots plus the following
+    // movements) and compares the result with the quantity of each fruit. The result has the
+    // IDs of the fruits whose quantity differs (long[], empty if the ledger is consistent).
+    public static final String METHOD_CHECK_LEDGER = "checkLedger";
+    public static final String EXTRA_INCONSISTENT_FRUIT_IDS = "inconsistentFruitIds";
+
+    // Name of the provider method that imports fruits from a CSV file (with a header line, as
+    // written to FruitEntry.EXPORT_URI). The argument is the URI of the file, opened with the
+    // ContentResolver. The optional extra is the number of fruits inserted in each transaction
+    // (int). Invalid rows are skipped: the result has the number of fruits imported and of rows
+    // skipped (long), the first reasons for skipping rows ("line: reason", String[]) and whether
+    // the whole file has been read (boolean, false if it could not be read to the end; the
+    // fruits already imported are kept).
+    public static final String METHOD_IMPORT_CSV = "importCsv";
+    public static final String EXTRA_BATCH_SIZE = "batchSize";
+    public static final String EXTRA_ROWS_IMPORTED = "rowsImported";
+    public static final String EXTRA_ROWS_REJECTED = "rowsRejected";
+    public static final String EXTRA_REJECTED_ROWS = "rejectedRows";
+    public static final String EXTRA_IMPORT_COMPLETE = "importComplete";
+
+    // Name of the provider method that returns the metrics of the provider operations since the
+    // process started. The result has a bundle for each operation and kind of URI that has been
+    // used, keyed by "operation URI" (such as "query FRUITS" or "update FRUIT_ID"), with the
+    // number of operations, their total time in nanoseconds, the number of rows returned or
+    // written, estimates of the 50th, 95th and 99th percentiles of their times in nanoseconds
+    // (long), and the histogram of their times (long[], bucket i counts the times below 2^i
+    // microseconds). If the optional extra is true (boolean), the metrics are also written to
+    // the log. They can also be read with "adb shell dumpsys activity provider".
+    public static final String METHOD_GET_METRICS = "getMetrics";
+    public static final String EXTRA_LOG_METRICS = "logMetrics";
+    public static final String EXTRA_METRIC_COUNT = "count";
+    public static final String EXTRA_METRIC_TOTAL_NANOS = "totalNanos";
+    public static final String EXTRA_METRIC_ROWS = "rows";
+    public static final String EXTRA_METRIC_P50_NANOS = "p50Nanos";
+    public static final String EXTRA_METRIC_P95_NANOS = "p95Nanos";
+    public static final String EXTRA_METRIC_P99_NANOS = "p99Nanos";
+    public static final String EXTRA_METRIC_HISTOGRAM = "histogram";
+
+    /**
+     * Add the given delta to the quantity of a fruit, directly in the database. The quantity is
+     * never updated if it would become negative.
+     *
+     * @param resolver the ContentResolver used to reach the provider
+     * @param fruitUri the content URI of the fruit to update
+     * @param delta    the value to add to the quantity (negative to decrease it)
+     * @return the new quantity, or -1 if the quantity has not been updated
+     */
+    public static int adjustQuantity(ContentResolver resolver, Uri fruitUri, int delta) {
+        Bundle extras = new Bundle();
+        extras.putLong(EXTRA_FRUIT_ID, ContentUris.parseId(fruitUri));
+        extras.putInt(EXTRA_QUANTITY_DELTA, delta);
+        Bundle result = resolver.call(FruitEntry.CONTENT_URI, METHOD_ADJUST_QUANTITY, null,
+                extras);
+        if (result == null || !result.containsKey(EXTRA_NEW_QUANTITY)) {
+            return -1;
+        }
+        return result.getInt(EXTRA_NEW_QUANTITY);
+    }
+
+    /**
+     * Sell some kilograms of a fruit: decrease its quantity and record the sale, with its price
+     * and time. The fruit is not sold if there isn't enough of it.
+     *
+     * @param resolver the ContentResolver used to reach the provider
+     * @param fruitUri the content URI of the fruit sold
+     * @param quantity the quantity sold, in kilograms
+     * @return the new quantity, or -1 if the fruit has not been sold
+     */
+    public static int sell(ContentResolver resolver, Uri fruitUri, int quantity) {
+        Bundle extras = new Bundle();
+        extras.putLong(EXTRA_FRUIT_ID, ContentUris.parseId(fruitUri));
+        extras.putInt(EXTRA_QUANTITY_SOLD, quantity);
+        Bundle result = resolver.call(FruitEntry.CONTENT_URI, METHOD_SELL, null, extras);
+        if (result == null || !result.containsKey(EXTRA_NEW_QUANTITY)) {
+            return -1;
+        }
+        return result.getInt(EXTRA_NEW_QUANTITY);
+    }
+
     /**
      * This is the inner class that defines constant values for the fruits database table.
      * Each entry in the table represents a single fruit.
@@ -27,6 +189,34 @@ public final class FruitContract {
         // The content URI to access the data in the provider.
         public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_FRUITS);
 
+        // The content URI to access the summary of the fruits, for the list rows. Only the
+        // columns of SUMMARY_PROJECTION can be queried from it, the others are ignored.
+        public static final Uri SUMMARY_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_FRUITS_SUMMARY);
+
+        // The content URI to search the fruits by name or supplier name. Each word of the
+        // search text matches the beginning of a word, and the fruits matching the most words
+        // come first. It accepts the LIMIT and OFFSET parameters.
+        public static final Uri SEARCH_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_FRUITS_SEARCH);
+
+        // The URI notified once for each write on the fruits table, whatever the number of
+        // fruits changed. It can't be queried: it is the notification URI of the cursors over
+        // several fruits. Each changed fruit is also notified on its own URI, so the observers of
+        // a single fruit are only notified when this fruit changes.
+        public static final Uri CHANGES_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_FRUITS_CHANGES);
+
+        // The content URI of the CSV export of all the fruits, opened for reading with
+        // ContentResolver.openInputStream(). The CSV is streamed while it is read.
+        public static final Uri EXPORT_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_FRUITS_EXPORT);
+
+        /**
+         * The MIME type of the {@link #EXPORT_URI}.
+         */
+        public static final String EXPORT_TYPE = "text/csv";
+
         /**
          * The MIME type of the {@link #CONTENT_URI} for a list of products.
          */
@@ -39,9 +229,50 @@ public final class FruitContract {
         public static final String CONTENT_ITEM_TYPE =
                 ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_FRUITS;
 
+        /**
+         * Build the content URI of a page of at most pageSize fruits, starting after the fruit
+         * with the given ID (use 0 for the first page).
+         *
+         * @param baseUri either {@link #CONTENT_URI} or {@link #SUMMARY_URI}
+         */
+        public static Uri buildPageUri(Uri baseUri, long afterId, int pageSize) {
+            return baseUri.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_AFTER_ID, String.valueOf(afterId))
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(pageSize))
+                    .build();
+        }
+
+        /**
+         * Build the content URI searching the fruits matching the given text.
+         */
+        public static Uri buildSearchUri(String searchText) {
+            return SEARCH_URI.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_SEARCH, searchText)
+                    .build();
+        }
+
+        /**
+         * Build the content URI of the fruits with an ID greater than afterId and lower than or
+         * equal to untilId.
+         *
+         * @param baseUri either {@link #CONTENT_URI} or {@link #SUMMARY_URI}
+         */
+        public static Uri buildRangeUri(Uri baseUri, long afterId, long untilId) {
+            return baseUri.buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_AFTER_ID, String.valueOf(afterId))
+                    .appendQueryParameter(QUERY_PARAMETER_UNTIL_ID, String.valueOf(untilId))
+                    .build();
+        }
+
         /** Name of database table for the fruits */
         public final static String TABLE_NAME = "Fruits";
 
+        /** Name of the full-text search table over the names and supplier names of the fruits */
+        public final static String SEARCH_TABLE_NAME = "Fruits_fts";
+
+        /** Name of database table for the queue of the fruits whose stock became low */
+        public final static String LOW_STOCK_TABLE_NAME = "Fruits_low_stock";
+
         /**
          * Unique ID number for the fruit (only for use in the database table).
          *
@@ -80,5 +311,202 @@ public final class FruitContract {
          * country.
          */
         public final static String COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER = "SupplierPhoneNumber";
+
+        /**
+         * Quantity of the fruit, in kilograms, at or below which it should be reordered. An
+         * alert is raised when the quantity goes from above it to at or below it. It is 0 by
+         * default, so an alert is raised when the fruit runs out.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_PRODUCT_REORDER_THRESHOLD = "ReorderThreshold";
+
+        /**
+         * Columns of the summary of a fruit: the ones displayed by each row of the list.
+         */
+        public final static String[] SUMMARY_PROJECTION = {_ID, COLUMN_PRODUCT_NAME,
+                COLUMN_PRODUCT_PRICE_PER_KG, COLUMN_PRODUCT_QUANTITY_IN_KG};
+    }
+
+    /**
+     * Constant values for the ledger of the stock movements. Each change of the quantity of a
+     * fruit appends a movement, in the same transaction as the change: the creation of the
+     * fruit, its updates and its deletion. The ledger can only be read.
+     */
+    public static final class MovementEntry implements BaseColumns {
+        // The content URI to read the movements. It is notified with FruitEntry.CHANGES_URI.
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_FRUITS_MOVEMENTS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI}.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/"
+                        + PATH_FRUITS_MOVEMENTS;
+
+        /** Name of database table for the movements */
+        public final static String TABLE_NAME = "Fruits_movements";
+
+        /** Name of database table for the snapshots of the quantities */
+        public final static String SNAPSHOTS_TABLE_NAME = "Fruits_snapshots";
+
+        /**
+         * Unique ID of the movement, in the order of the movements.
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * ID of the fruit whose quantity changed.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_FRUIT_ID = "FruitId";
+
+        /**
+         * Quantity added to the stock of the fruit, in kilograms (negative when it decreased).
+         * Type: INTEGER
+         */
+        public final static String COLUMN_DELTA = "Delta";
+
+        /**
+         * Time of the movement, in milliseconds since the epoch.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TIME = "Time";
+
+        /**
+         * Column of the snapshots: ID of the last movement included in the quantity.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_LAST_MOVEMENT_ID = "LastMovementId";
+    }
+
+    /**
+     * Constant values for the sales, and for their rollups: the totals of the sales of each fruit
+     * per hour and per day, kept up to date by the database with each sale. The buckets are in
+     * UTC. All of them can only be read, the sales are written with {@link #METHOD_SELL}.
+     */
+    public static final class SalesEntry implements BaseColumns {
+        // The content URI to read the sales.
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_SALES);
+
+        // The content URIs to read the hourly and the daily rollups. A report over a month only
+        // reads 30 days per fruit instead of every sale.
+        public static final Uri HOURLY_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_SALES_HOURLY);
+        public static final Uri DAILY_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_SALES_DAILY);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI}.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SALES;
+
+        /**
+         * The MIME type of the {@link #HOURLY_URI} and of the {@link #DAILY_URI}.
+         */
+        public static final String ROLLUP_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SALES
+                        + ".rollup";
+
+        /** Name of database table for the sales */
+        public final static String TABLE_NAME = "Fruits_sales";
+
+        /** Names of database tables for the hourly and the daily rollups */
+        public final static String HOURLY_TABLE_NAME = "Fruits_sales_hourly";
+        public final static String DAILY_TABLE_NAME = "Fruits_sales_daily";
+
+        /**
+         * Unique ID of the sale (not in the rollups).
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * ID of the fruit sold.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_FRUIT_ID = "FruitId";
+
+        /**
+         * Quantity sold, in kilograms.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_QUANTITY = "Quantity";
+
+        /**
+         * Price of the sale: the price per kilogram at the time of the sale times the quantity.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_REVENUE = "Revenue";
+
+        /**
+         * Time of the sale, in milliseconds since the epoch (only in the sales).
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TIME = "Time";
+
+        /**
+         * Start of the hour or of the day of the rollup, in milliseconds since the epoch (only in
+         * the rollups).
+         * Type: INTEGER
+         */
+        public final static String COLUMN_BUCKET_START = "BucketStart";
+
+        /**
+         * Number of sales in the rollup (only in the rollups).
+         * Type: INTEGER
+         */
+        public final static String COLUMN_SALE_COUNT = "SaleCount";
+    }
+
+    /**
+     * Constant values for the statistics of the inventory. The table has a single row, kept up
+     * to date by the database with each write on the fruits table, so reading the statistics
+     * doesn't depend on the number of fruits.
+     */
+    public static final class StatsEntry implements BaseColumns {
+        // The content URI to read the statistics. It is notified with FruitEntry.CHANGES_URI.
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI,
+                PATH_FRUITS_STATS);
+
+        /**
+         * The MIME type of the {@link #CONTENT_URI}.
+         */
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/"
+                        + PATH_FRUITS_STATS;
+
+        /** Name of database table for the statistics */
+        public final static String TABLE_NAME = "Fruits_stats";
+
+        /**
+         * Unique ID of the row of statistics, always 1.
+         *
+         * Type: INTEGER
+         */
+        public final static String _ID = BaseColumns._ID;
+
+        /**
+         * Value of the stock: the sum of the price times the quantity of each fruit.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TOTAL_STOCK_VALUE = "TotalStockValue";
+
+        /**
+         * Sum of the quantities of all the fruits, in kilograms.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_TOTAL_QUANTITY_IN_KG = "TotalQuantity";
+
+        /**
+         * Number of fruits with a quantity of 0.
+         * Type: INTEGER
+         */
+        public final static String COLUMN_OUT_OF_STOCK_COUNT = "OutOfStockCount";
     }
 }
\ No newline at end of file
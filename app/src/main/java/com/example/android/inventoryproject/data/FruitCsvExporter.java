@@ -0,0 +1,171 @@
+package com.example.android.inventoryproject.data;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the fruits table as CSV (RFC 4180, UTF-8, with a header line) to a channel.
+ * The table is read in windows of a fixed number of fruits, by increasing ID, and the lines go
+ * through a fixed-size buffer, so the memory used doesn't depend on the number of fruits.
+ * Each window is read on its own: a fruit written during the export may or may not be in it,
+ * but no fruit is exported twice.
+ */
+final class FruitCsvExporter {
+
+    /**
+     * Receives the progress of an export.
+     */
+    interface ProgressListener {
+        /**
+         * Called after each window with the number of fruits written so far, and the number of
+         * fruits when the export started.
+         */
+        void onProgress(long rowsWritten, long totalRows);
+    }
+
+    // Default number of fruits read at once.
+    static final int DEFAULT_WINDOW_SIZE = 1000;
+
+    // Size of the buffer between the rows and the channel, in bytes.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Columns exported, in the order of the CSV.
+    static final String[] COLUMNS = {FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_NAME,
+            FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG,
+            FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME,
+            FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+            FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD};
+
+    private final SQLiteDatabase database;
+    private final int windowSize;
+
+    /**
+     * Constructs a new {@link FruitCsvExporter}.
+     *
+     * @param database   the database with the fruits table
+     * @param windowSize the number of fruits read at once
+     */
+    FruitCsvExporter(SQLiteDatabase database, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size " + windowSize);
+        }
+        this.database = database;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Write all the fruits to the channel, which is not closed.
+     * Return the number of fruits written.
+     */
+    long export(WritableByteChannel channel, ProgressListener listener) throws IOException {
+        long totalRows = DatabaseUtils.queryNumEntries(database, FruitEntry.TABLE_NAME);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        StringBuilder line = new StringBuilder();
+
+        for (String column : COLUMNS) {
+            appendField(line, column);
+        }
+        writeLine(channel, buffer, line);
+
+        long rowsWritten = 0;
+        long lastId = 0;
+        String[] selectionArgs = new String[1];
+        while (true) {
+            selectionArgs[0] = String.valueOf(lastId);
+            Cursor cursor = database.query(FruitEntry.TABLE_NAME, COLUMNS, FruitEntry._ID + " > ?",
+                    selectionArgs, null, null, FruitEntry._ID, String.valueOf(windowSize));
+            int count;
+            try {
+                count = cursor.getCount();
+                while (cursor.moveToNext()) {
+                    lastId = cursor.getLong(0);
+                    for (int i = 0; i < COLUMNS.length; i++) {
+                        appendField(line, cursor.getString(i));
+                    }
+                    writeLine(channel, buffer, line);
+                }
+            } finally {
+                cursor.close();
+            }
+            rowsWritten += count;
+            if (listener != null) {
+                listener.onProgress(rowsWritten, totalRows);
+            }
+            if (count < windowSize) {
+                break;
+            }
+        }
+
+        flush(channel, buffer);
+        return rowsWritten;
+    }
+
+    /**
+     * Append a field to the line, quoted if it has a separator, a quote or a line break.
+     * A null field is left empty.
+     */
+    static void appendField(StringBuilder line, String field) {
+        if (line.length() > 0) {
+            line.append(',');
+        }
+        if (field == null) {
+            return;
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0
+                && field.indexOf('\r') < 0) {
+            line.append(field);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * End the line, move it to the buffer and clear it. The buffer is flushed to the channel
+     * when the line doesn't fit.
+     */
+    private static void writeLine(WritableByteChannel channel, ByteBuffer buffer,
+                                  StringBuilder line) throws IOException {
+        line.append("\r\n");
+        byte[] bytes = line.toString().getBytes(UTF_8);
+        line.setLength(0);
+        if (bytes.length > buffer.remaining()) {
+            flush(channel, buffer);
+        }
+        if (bytes.length > buffer.remaining()) {
+            // Longer than the whole buffer: written as is.
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws
+            IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentValues;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads fruits from CSV (RFC 4180, as written by {@link FruitCsvExporter}) in a single
+ * streaming pass, and inserts them into the fruits table.
+ * The first line names the columns, in any order. The _id column is ignored, so an export can
+ * be imported again as new fruits, and empty fields take the defaults of the table.
+ * Each row is validated with the rules of {@link FruitProvider}. An invalid row is reported to
+ * the {@link ErrorListener} and skipped, the import goes on. The valid rows are inserted with a
+ * precompiled statement, in one transaction per batch of rows.
+ */
+final class FruitCsvImporter {
+
+    /**
+     * Receives the rows that could not be imported.
+     */
+    interface ErrorListener {
+        /**
+         * Called with the number of the line where the row starts (the header is line 1), and
+         * the reason why it was skipped.
+         */
+        void onRowRejected(long lineNumber, String message);
+    }
+
+    // Default number of rows inserted in each transaction.
+    static final int DEFAULT_BATCH_SIZE = 5000;
+
+    // Maximum length of a row, in characters. Longer rows are skipped, so a malformed file (a
+    // quote that is never closed) can't fill the memory.
+    static final int MAX_ROW_LENGTH = 64 * 1024;
+
+    // Columns that can be imported.
+    private static final List<String> COLUMNS = Arrays.asList(FruitEntry.COLUMN_PRODUCT_NAME,
+            FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG,
+            FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME,
+            FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+            FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD);
+
+    // Columns whose values are integers.
+    private static final List<String> INTEGER_COLUMNS = Arrays.asList(
+            FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG,
+            FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD);
+
+    private final SQLiteDatabase database;
+    private final int batchSize;
+
+    // Number of rows inserted and skipped by the last import.
+    private long rowsImported;
+    private long rowsRejected;
+
+    // State of the parser: the reader, the next character (-1 at the end), the current line and
+    // the line where the current row starts.
+    private Reader reader;
+    private int next;
+    private long lineNumber;
+    private long rowLineNumber;
+    private boolean rowTooLong;
+
+    /**
+     * Constructs a new {@link FruitCsvImporter}.
+     *
+     * @param database  the database with the fruits table
+     * @param batchSize the number of rows inserted in each transaction
+     */
+    FruitCsvImporter(SQLiteDatabase database, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+        this.database = database;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import all the rows of the reader, which is not closed. The reader should be buffered.
+     * The batches committed before an {@link IOException} are kept.
+     * Throw an {@link IllegalArgumentException} if the header has an unknown column, before any
+     * row is inserted.
+     */
+    void importFrom(Reader reader, ErrorListener listener) throws IOException {
+        this.reader = reader;
+        next = reader.read();
+        lineNumber = 1;
+        rowsImported = 0;
+        rowsRejected = 0;
+
+        List<String> fields = new ArrayList<>();
+        if (!readRow(fields)) {
+            return;
+        }
+        String[] header = fields.toArray(new String[fields.size()]);
+        for (String column : header) {
+            if (!COLUMNS.contains(column) && !FruitEntry._ID.equals(column)) {
+                throw new IllegalArgumentException("Unknown column " + column);
+            }
+        }
+
+        ContentValues values = new ContentValues();
+        SQLiteStatement statement = database.compileStatement(FruitProvider.SQL_INSERT_FRUIT);
+        try {
+            int batchRows = 0;
+            database.beginTransaction();
+            try {
+                while (readRow(fields)) {
+                    if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                        // Blank line.
+                        continue;
+                    }
+                    String error = rowTooLong ? "Row longer than " + MAX_ROW_LENGTH
+                            + " characters" : toValues(header, fields, values);
+                    if (error == null) {
+                        try {
+                            FruitProvider.validateNewFruit(values);
+                            FruitProvider.bindFruit(statement, values);
+                            statement.executeInsert();
+                        } catch (IllegalArgumentException | SQLException e) {
+                            error = e.getMessage();
+                        }
+                    }
+                    if (error != null) {
+                        rowsRejected++;
+                        if (listener != null) {
+                            listener.onRowRejected(rowLineNumber, error);
+                        }
+                        continue;
+                    }
+
+                    if (++batchRows == batchSize) {
+                        database.setTransactionSuccessful();
+                        database.endTransaction();
+                        // The rows of a batch are only counted once it is committed.
+                        rowsImported += batchRows;
+                        database.beginTransaction();
+                        batchRows = 0;
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            rowsImported += batchRows;
+        } finally {
+            statement.close();
+            this.reader = null;
+        }
+    }
+
+    /**
+     * Return the number of rows inserted by the last import, in the batches that were
+     * committed.
+     */
+    long getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * Return the number of rows skipped by the last import.
+     */
+    long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * Fill the content values with the fields of a row.
+     * Return the reason why the row is invalid, or null.
+     */
+    private String toValues(String[] header, List<String> fields, ContentValues values) {
+        if (fields.size() != header.length) {
+            return "Expected " + header.length + " fields but found " + fields.size();
+        }
+        values.clear();
+        for (int i = 0; i < header.length; i++) {
+            String column = header[i];
+            String field = fields.get(i);
+            if (field.isEmpty() || FruitEntry._ID.equals(column)) {
+                continue;
+            }
+            if (!INTEGER_COLUMNS.contains(column)) {
+                values.put(column, field);
+                continue;
+            }
+            try {
+                values.put(column, Integer.parseInt(field.trim()));
+            } catch (NumberFormatException e) {
+                return "Invalid " + column + " " + field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the fields of the next row into the list. If the row is too long, its fields are
+     * truncated and rowTooLong is set.
+     * Return false at the end of the input.
+     */
+    private boolean readRow(List<String> fields) throws IOException {
+        fields.clear();
+        if (next == -1) {
+            return false;
+        }
+        rowLineNumber = lineNumber;
+        StringBuilder field = new StringBuilder();
+        int rowLength = 0;
+        boolean quoted = false;
+        while (next != -1) {
+            int c = next;
+            next = reader.read();
+            if (c == '\n') {
+                lineNumber++;
+            }
+            if (++rowLength > MAX_ROW_LENGTH) {
+                // Don't keep the rest of the row, but read it until its end.
+                field.setLength(0);
+            }
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (next == '"') {
+                    field.append('"');
+                    next = reader.read();
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        fields.add(field.toString());
+        rowTooLong = rowLength > MAX_ROW_LENGTH;
+        return true;
+    }
+}
@@ -1,24 +1,35 @@
 package com.example.android.inventoryproject.data;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 
 import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.MovementEntry;
+import com.example.android.inventoryproject.data.FruitContract.SalesEntry;
+import com.example.android.inventoryproject.data.FruitContract.StatsEntry;
 
 /**
  * Database helper that manages database creation and version management.
  */
 public class FruitDbHelper extends SQLiteOpenHelper {
 
-    // Version of the database file.
-    private static final int DATABASE_VERSION = 1;
+    /**
+     * Implemented by an application that keeps the fruits of the provider in another database
+     * file than the one of the app, such as the application of the instrumented tests.
+     */
+    public interface DatabaseNameSource {
+        String getFruitDatabaseName();
+    }
 
     // Name of the database file.
-    private static final String DATABASE_NAME = "inventory.db";
+    static final String DATABASE_NAME = "inventory.db";
 
-    // String containing the SQL statement to create the fruits table.
-    private static final String SQL_CREATE_ENTRIES = "CREATE TABLE " + FruitEntry.TABLE_NAME + " " +
+    // String containing the SQL statement to create the fruits table, as it was in the first
+    // version of the database. The next versions change it through the MIGRATIONS.
+    static final String SQL_CREATE_ENTRIES = "CREATE TABLE " + FruitEntry.TABLE_NAME + " " +
             "(" + FruitEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " + FruitEntry
             .COLUMN_PRODUCT_NAME + " TEXT NOT NULL, " + FruitEntry
             .COLUMN_PRODUCT_PRICE_PER_KG + " INTEGER NOT NULL DEFAULT 1, " + FruitEntry
@@ -26,30 +37,403 @@ public class FruitDbHelper extends SQLiteOpenHelper {
             .COLUMN_PRODUCT_SUPPLIER_NAME + " TEXT NOT NULL, " + FruitEntry
             .COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER + " TEXT NOT NULL" + ");";
 
-    // This string is used to delete the table.
-    private static final String SQL_DELETE_ENTRIES = "DROP TABLE IF EXISTS " + FruitEntry
-            .TABLE_NAME;
+    // Indexes used by the name lookups, the supplier filters and the low-stock queries.
+    private static final String SQL_CREATE_NAME_INDEX = "CREATE INDEX IF NOT EXISTS "
+            + FruitEntry.TABLE_NAME + "_" + FruitEntry.COLUMN_PRODUCT_NAME + "_index ON "
+            + FruitEntry.TABLE_NAME + " (" + FruitEntry.COLUMN_PRODUCT_NAME + ")";
+    private static final String SQL_CREATE_SUPPLIER_NAME_INDEX = "CREATE INDEX IF NOT EXISTS "
+            + FruitEntry.TABLE_NAME + "_" + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + "_index ON "
+            + FruitEntry.TABLE_NAME + " (" + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ")";
+    private static final String SQL_CREATE_QUANTITY_INDEX = "CREATE INDEX IF NOT EXISTS "
+            + FruitEntry.TABLE_NAME + "_" + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + "_index ON "
+            + FruitEntry.TABLE_NAME + " (" + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ")";
+
+    // Full-text index on the name and supplier name of the fruits, used by the search. Its docid
+    // is the ID of the fruit. It is filled with the existing fruits, then kept in sync with the
+    // fruits table by triggers.
+    private static final String SQL_CREATE_SEARCH_TABLE = "CREATE VIRTUAL TABLE "
+            + FruitEntry.SEARCH_TABLE_NAME + " USING fts4(" + FruitEntry.COLUMN_PRODUCT_NAME
+            + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ")";
+    // The simple tokenizer of the first search table only folds the case of the ASCII letters,
+    // so it is replaced by the unicode61 tokenizer where SQLite has it (Lollipop and above),
+    // which also folds the other letters and ignores the diacritics.
+    private static final String SEARCH_TOKENIZER =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? "unicode61" : "simple";
+    private static final String SQL_DROP_SEARCH_TABLE = "DROP TABLE "
+            + FruitEntry.SEARCH_TABLE_NAME;
+    private static final String SQL_CREATE_TOKENIZED_SEARCH_TABLE = "CREATE VIRTUAL TABLE "
+            + FruitEntry.SEARCH_TABLE_NAME + " USING fts4(" + FruitEntry.COLUMN_PRODUCT_NAME
+            + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", tokenize=" + SEARCH_TOKENIZER
+            + ")";
+    private static final String SQL_FILL_SEARCH_TABLE = "INSERT INTO "
+            + FruitEntry.SEARCH_TABLE_NAME + " (docid, " + FruitEntry.COLUMN_PRODUCT_NAME + ", "
+            + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ") SELECT " + FruitEntry._ID + ", "
+            + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME
+            + " FROM " + FruitEntry.TABLE_NAME;
+    private static final String SQL_CREATE_SEARCH_INSERT_TRIGGER = "CREATE TRIGGER "
+            + FruitEntry.SEARCH_TABLE_NAME + "_insert AFTER INSERT ON " + FruitEntry.TABLE_NAME
+            + " BEGIN INSERT INTO " + FruitEntry.SEARCH_TABLE_NAME + " (docid, "
+            + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME
+            + ") VALUES (new." + FruitEntry._ID + ", new." + FruitEntry.COLUMN_PRODUCT_NAME
+            + ", new." + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + "); END";
+    private static final String SQL_CREATE_SEARCH_UPDATE_TRIGGER = "CREATE TRIGGER "
+            + FruitEntry.SEARCH_TABLE_NAME + "_update AFTER UPDATE OF "
+            + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME
+            + " ON " + FruitEntry.TABLE_NAME + " BEGIN UPDATE " + FruitEntry.SEARCH_TABLE_NAME
+            + " SET " + FruitEntry.COLUMN_PRODUCT_NAME + " = new." + FruitEntry.COLUMN_PRODUCT_NAME
+            + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + " = new."
+            + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + " WHERE docid = old." + FruitEntry._ID
+            + "; END";
+    private static final String SQL_CREATE_SEARCH_DELETE_TRIGGER = "CREATE TRIGGER "
+            + FruitEntry.SEARCH_TABLE_NAME + "_delete AFTER DELETE ON " + FruitEntry.TABLE_NAME
+            + " BEGIN DELETE FROM " + FruitEntry.SEARCH_TABLE_NAME + " WHERE docid = old."
+            + FruitEntry._ID + "; END";
+
+    // Statistics of the inventory, in a table with a single row. The row is computed from the
+    // existing fruits, then triggers add the difference made by each write on the fruits table.
+    private static final String SQL_CREATE_STATS_TABLE = "CREATE TABLE "
+            + StatsEntry.TABLE_NAME + " (" + StatsEntry._ID + " INTEGER PRIMARY KEY CHECK ("
+            + StatsEntry._ID + " = 1), " + StatsEntry.COLUMN_TOTAL_STOCK_VALUE
+            + " INTEGER NOT NULL, " + StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG
+            + " INTEGER NOT NULL, " + StatsEntry.COLUMN_OUT_OF_STOCK_COUNT + " INTEGER NOT NULL)";
+    // Full recompute of the statistics from the fruits table.
+    private static final String SQL_COMPUTE_STATS = "SELECT 1, COALESCE(SUM("
+            + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG + " * "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + "), 0), COALESCE(SUM("
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + "), 0), COUNT(CASE WHEN "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " = 0 THEN 1 END) FROM "
+            + FruitEntry.TABLE_NAME;
+    private static final String SQL_FILL_STATS_TABLE = "INSERT OR REPLACE INTO "
+            + StatsEntry.TABLE_NAME + " " + SQL_COMPUTE_STATS;
+    private static final String SQL_CREATE_STATS_INSERT_TRIGGER = "CREATE TRIGGER "
+            + StatsEntry.TABLE_NAME + "_insert AFTER INSERT ON " + FruitEntry.TABLE_NAME
+            + " BEGIN UPDATE " + StatsEntry.TABLE_NAME + " SET " + statsDelta("+", "new")
+            + "; END";
+    private static final String SQL_CREATE_STATS_UPDATE_TRIGGER = "CREATE TRIGGER "
+            + StatsEntry.TABLE_NAME + "_update AFTER UPDATE OF "
+            + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG + ", "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " ON " + FruitEntry.TABLE_NAME
+            + " BEGIN UPDATE " + StatsEntry.TABLE_NAME + " SET " + statsDelta("-", "old")
+            + "; UPDATE " + StatsEntry.TABLE_NAME + " SET " + statsDelta("+", "new") + "; END";
+    private static final String SQL_CREATE_STATS_DELETE_TRIGGER = "CREATE TRIGGER "
+            + StatsEntry.TABLE_NAME + "_delete AFTER DELETE ON " + FruitEntry.TABLE_NAME
+            + " BEGIN UPDATE " + StatsEntry.TABLE_NAME + " SET " + statsDelta("-", "old")
+            + "; END";
+
+    // Reorder threshold of each fruit, and queue of the fruits whose quantity went from above
+    // their threshold to at or below it. The trigger only adds a row when the threshold is
+    // crossed, the other updates only evaluate its WHEN clause. The queue is drained by the
+    // LowStockWorker.
+    private static final String SQL_ADD_REORDER_THRESHOLD = "ALTER TABLE "
+            + FruitEntry.TABLE_NAME + " ADD COLUMN " + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD
+            + " INTEGER NOT NULL DEFAULT 0";
+    private static final String SQL_CREATE_LOW_STOCK_TABLE = "CREATE TABLE "
+            + FruitEntry.LOW_STOCK_TABLE_NAME + " (" + FruitEntry._ID
+            + " INTEGER PRIMARY KEY AUTOINCREMENT, " + LowStockWorker.COLUMN_FRUIT_ID
+            + " INTEGER NOT NULL, " + FruitEntry.COLUMN_PRODUCT_NAME + " TEXT NOT NULL, "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " INTEGER NOT NULL, "
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + " INTEGER NOT NULL)";
+    private static final String SQL_CREATE_LOW_STOCK_TRIGGER = "CREATE TRIGGER "
+            + FruitEntry.LOW_STOCK_TABLE_NAME + "_update AFTER UPDATE OF "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + " ON " + FruitEntry.TABLE_NAME
+            + " WHEN old." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " > old."
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + " AND new."
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " <= new."
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + " BEGIN INSERT INTO "
+            + FruitEntry.LOW_STOCK_TABLE_NAME + " (" + LowStockWorker.COLUMN_FRUIT_ID + ", "
+            + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG
+            + ", " + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + ") VALUES (new."
+            + FruitEntry._ID + ", new." + FruitEntry.COLUMN_PRODUCT_NAME + ", new."
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", new."
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + "); END";
+
+    // Ledger of the stock movements and snapshots of the quantities (see FruitLedger). The
+    // existing quantities are recorded as opening movements, then triggers append a movement for
+    // each change of a quantity, in the transaction of the change. The IDs of the movements are
+    // never reused, so a snapshot can tell which movements it includes.
+    private static final String SQL_CREATE_MOVEMENTS_TABLE = "CREATE TABLE "
+            + MovementEntry.TABLE_NAME + " (" + MovementEntry._ID
+            + " INTEGER PRIMARY KEY AUTOINCREMENT, " + MovementEntry.COLUMN_FRUIT_ID
+            + " INTEGER NOT NULL, " + MovementEntry.COLUMN_DELTA + " INTEGER NOT NULL, "
+            + MovementEntry.COLUMN_TIME + " INTEGER NOT NULL)";
+    private static final String SQL_CREATE_MOVEMENTS_INDEX = "CREATE INDEX "
+            + MovementEntry.TABLE_NAME + "_" + MovementEntry.COLUMN_FRUIT_ID + "_index ON "
+            + MovementEntry.TABLE_NAME + " (" + MovementEntry.COLUMN_FRUIT_ID + ", "
+            + MovementEntry._ID + ")";
+    private static final String SQL_CREATE_SNAPSHOTS_TABLE = "CREATE TABLE "
+            + MovementEntry.SNAPSHOTS_TABLE_NAME + " (" + MovementEntry.COLUMN_FRUIT_ID
+            + " INTEGER PRIMARY KEY, " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG
+            + " INTEGER NOT NULL, " + MovementEntry.COLUMN_LAST_MOVEMENT_ID
+            + " INTEGER NOT NULL, " + MovementEntry.COLUMN_TIME + " INTEGER NOT NULL)";
+    // Current time in milliseconds since the epoch.
+    static final String SQL_NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS "
+            + "INTEGER)";
+    private static final String SQL_FILL_MOVEMENTS_TABLE = "INSERT INTO "
+            + MovementEntry.TABLE_NAME + " (" + MovementEntry.COLUMN_FRUIT_ID + ", "
+            + MovementEntry.COLUMN_DELTA + ", " + MovementEntry.COLUMN_TIME + ") SELECT "
+            + FruitEntry._ID + ", " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+            + SQL_NOW_MILLIS + " FROM " + FruitEntry.TABLE_NAME;
+    private static final String SQL_CREATE_MOVEMENTS_INSERT_TRIGGER = "CREATE TRIGGER "
+            + MovementEntry.TABLE_NAME + "_insert AFTER INSERT ON " + FruitEntry.TABLE_NAME
+            + " BEGIN " + appendMovement("new", "new." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG)
+            + "; END";
+    private static final String SQL_CREATE_MOVEMENTS_UPDATE_TRIGGER = "CREATE TRIGGER "
+            + MovementEntry.TABLE_NAME + "_update AFTER UPDATE OF "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " ON " + FruitEntry.TABLE_NAME
+            + " WHEN new." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " <> old."
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " BEGIN "
+            + appendMovement("new", "new." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG
+            + " - old." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG) + "; END";
+    private static final String SQL_CREATE_MOVEMENTS_DELETE_TRIGGER = "CREATE TRIGGER "
+            + MovementEntry.TABLE_NAME + "_delete AFTER DELETE ON " + FruitEntry.TABLE_NAME
+            + " WHEN old." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " <> 0 BEGIN "
+            + appendMovement("old", "-old." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG) + "; END";
+
+    // Sales, and their hourly and daily rollups. The trigger adds each new sale to the rollups
+    // of its hour and of its day, creating them if needed.
+    private static final String SQL_CREATE_SALES_TABLE = "CREATE TABLE "
+            + SalesEntry.TABLE_NAME + " (" + SalesEntry._ID + " INTEGER PRIMARY KEY, "
+            + SalesEntry.COLUMN_FRUIT_ID + " INTEGER NOT NULL, " + SalesEntry.COLUMN_QUANTITY
+            + " INTEGER NOT NULL, " + SalesEntry.COLUMN_REVENUE + " INTEGER NOT NULL, "
+            + SalesEntry.COLUMN_TIME + " INTEGER NOT NULL)";
+    private static final String SQL_CREATE_SALES_INDEX = "CREATE INDEX "
+            + SalesEntry.TABLE_NAME + "_" + SalesEntry.COLUMN_TIME + "_index ON "
+            + SalesEntry.TABLE_NAME + " (" + SalesEntry.COLUMN_TIME + ")";
+    private static final String SQL_CREATE_SALES_INSERT_TRIGGER = "CREATE TRIGGER "
+            + SalesEntry.TABLE_NAME + "_insert AFTER INSERT ON " + SalesEntry.TABLE_NAME
+            + " BEGIN " + addToRollup(SalesEntry.HOURLY_TABLE_NAME, 60 * 60 * 1000) + "; "
+            + addToRollup(SalesEntry.DAILY_TABLE_NAME, 24 * 60 * 60 * 1000) + "; END";
 
     /**
-     * Constructs a new instance of {@link FruitDbHelper}.
+     * The SQL statements that upgrade the database from one version to the next one:
+     * MIGRATIONS[i] upgrades the database from version i + 1 to version i + 2.
+     * A migration must keep the existing data. To change the schema, add a new migration at the
+     * end of the array: the version of the database is increased automatically.
+     */
+    private static final String[][] MIGRATIONS = {
+            // Version 2: add the indexes on the name, supplier name and quantity.
+            {SQL_CREATE_NAME_INDEX, SQL_CREATE_SUPPLIER_NAME_INDEX, SQL_CREATE_QUANTITY_INDEX},
+            // Version 3: add the full-text search table and its triggers.
+            {SQL_CREATE_SEARCH_TABLE, SQL_FILL_SEARCH_TABLE, SQL_CREATE_SEARCH_INSERT_TRIGGER,
+                    SQL_CREATE_SEARCH_UPDATE_TRIGGER, SQL_CREATE_SEARCH_DELETE_TRIGGER},
+            // Version 4: add the statistics table and its triggers.
+            {SQL_CREATE_STATS_TABLE, SQL_FILL_STATS_TABLE, SQL_CREATE_STATS_INSERT_TRIGGER,
+                    SQL_CREATE_STATS_UPDATE_TRIGGER, SQL_CREATE_STATS_DELETE_TRIGGER},
+            // Version 5: add the reorder threshold and the queue of the low stock alerts.
+            {SQL_ADD_REORDER_THRESHOLD, SQL_CREATE_LOW_STOCK_TABLE, SQL_CREATE_LOW_STOCK_TRIGGER},
+            // Version 6: add the ledger of the stock movements, its snapshots and its triggers.
+            {SQL_CREATE_MOVEMENTS_TABLE, SQL_CREATE_MOVEMENTS_INDEX, SQL_CREATE_SNAPSHOTS_TABLE,
+                    SQL_FILL_MOVEMENTS_TABLE, SQL_CREATE_MOVEMENTS_INSERT_TRIGGER,
+                    SQL_CREATE_MOVEMENTS_UPDATE_TRIGGER, SQL_CREATE_MOVEMENTS_DELETE_TRIGGER},
+            // Version 7: add the sales, their rollups and the trigger that fills the rollups.
+            {SQL_CREATE_SALES_TABLE, SQL_CREATE_SALES_INDEX,
+                    createRollupTable(SalesEntry.HOURLY_TABLE_NAME),
+                    createRollupTable(SalesEntry.DAILY_TABLE_NAME),
+                    SQL_CREATE_SALES_INSERT_TRIGGER},
+            // Version 8: rebuild the full-text search table with the Unicode tokenizer. The
+            // triggers only name the table, so they keep working.
+            {SQL_DROP_SEARCH_TABLE, SQL_CREATE_TOKENIZED_SEARCH_TABLE, SQL_FILL_SEARCH_TABLE},
+    };
+
+    // Version of the database file.
+    static final int DATABASE_VERSION = MIGRATIONS.length + 1;
+
+    // Settings applied to each connection when the database is opened.
+    private final DatabaseSettings settings;
+
+    /**
+     * Constructs a new instance of {@link FruitDbHelper}, with the default settings.
      *
      * @param context of the app
      */
     public FruitDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DatabaseSettings.DEFAULT);
     }
 
-    // This method is called when the database is created.
+    /**
+     * Constructs a new instance of {@link FruitDbHelper}.
+     *
+     * @param context  of the app
+     * @param settings the connection settings
+     */
+    public FruitDbHelper(Context context, DatabaseSettings settings) {
+        this(context, DATABASE_NAME, settings);
+    }
+
+    /**
+     * Constructs a new instance of {@link FruitDbHelper} on another database file than the one
+     * of the app, such as a scratch database of a benchmark.
+     *
+     * @param context  of the app
+     * @param name     the name of the database file
+     * @param settings the connection settings
+     */
+    FruitDbHelper(Context context, String name, DatabaseSettings settings) {
+        super(context, name, null, DATABASE_VERSION);
+        this.settings = settings;
+    }
+
+    // This method is called when the database is opened, before it is created or upgraded
+    // (from Android 4.1 only).
     @Override
-    public void onCreate(SQLiteDatabase FruitEntry) {
-        FruitEntry.execSQL(SQL_CREATE_ENTRIES);
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        configure(db);
     }
 
-    // This method is called when the database is upgraded.
+    // This method is called once the database is opened, created and upgraded. Before
+    // Android 4.1, onConfigure() isn't called: the settings are applied here instead, so only
+    // the creation and the upgrades run with the default settings.
     @Override
-    public void onUpgrade(SQLiteDatabase FruitEntry, int i, int i1) {
-        FruitEntry.execSQL(SQL_DELETE_ENTRIES);
-        onCreate(FruitEntry);
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            configure(db);
+        }
+    }
+
+    /**
+     * Enable write-ahead logging, so the loaders can read while the quantities are written,
+     * and apply the other connection settings.
+     * <p>
+     * The PRAGMAs only apply to the primary connection, the one that writes. With write-ahead
+     * logging, the framework opens the read-only connections of its pool with its own defaults
+     * and has no hook to configure them: the synchronous mode and the checkpoints only matter
+     * to the writer, but the readers keep the default page cache size.
+     */
+    private void configure(SQLiteDatabase db) {
+        if (settings.writeAheadLogging) {
+            db.enableWriteAheadLogging();
+        }
+        executePragma(db, "PRAGMA synchronous = " + settings.synchronousMode);
+        // A negative cache size is a number of kibibytes instead of a number of pages.
+        executePragma(db, "PRAGMA cache_size = -" + settings.cacheSizeKib);
+        executePragma(db, "PRAGMA wal_autocheckpoint = " + settings.walAutoCheckpointPages);
+    }
+
+    /**
+     * Execute a PRAGMA statement. Some of them return a row, so they can't be run with
+     * {@link SQLiteDatabase#execSQL(String)}.
+     */
+    private static void executePragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery(pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // This method is called when the database is created. The first version of the table is
+    // created, then all the migrations are applied.
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_ENTRIES);
+        migrate(db, 1);
+    }
+
+    // This method is called when the database is upgraded. Only the migrations newer than the
+    // current version of the database are applied, so the stock is kept.
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        migrate(db, oldVersion);
+    }
+
+    /**
+     * Return the assignments that add (operator "+") or remove (operator "-") the fruit of the
+     * given trigger row ("new" or "old") to or from the statistics.
+     */
+    private static String statsDelta(String operator, String row) {
+        String quantity = row + "." + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG;
+        return StatsEntry.COLUMN_TOTAL_STOCK_VALUE + " = " + StatsEntry.COLUMN_TOTAL_STOCK_VALUE
+                + " " + operator + " " + row + "." + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG
+                + " * " + quantity + ", "
+                + StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG + " = "
+                + StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG + " " + operator + " " + quantity + ", "
+                + StatsEntry.COLUMN_OUT_OF_STOCK_COUNT + " = "
+                + StatsEntry.COLUMN_OUT_OF_STOCK_COUNT + " " + operator + " (" + quantity
+                + " = 0)";
+    }
+
+    /**
+     * Return the statement that creates a table of rollups of the sales. The primary key makes
+     * the rollups of a period of time read in order of bucket for each fruit.
+     */
+    private static String createRollupTable(String table) {
+        return "CREATE TABLE " + table + " (" + SalesEntry.COLUMN_BUCKET_START
+                + " INTEGER NOT NULL, " + SalesEntry.COLUMN_FRUIT_ID + " INTEGER NOT NULL, "
+                + SalesEntry.COLUMN_QUANTITY + " INTEGER NOT NULL, " + SalesEntry.COLUMN_REVENUE
+                + " INTEGER NOT NULL, " + SalesEntry.COLUMN_SALE_COUNT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + SalesEntry.COLUMN_BUCKET_START + ", "
+                + SalesEntry.COLUMN_FRUIT_ID + "))";
     }
-}
 
+    /**
+     * Return the statements of the trigger that add the new sale to the given table of rollups,
+     * whose buckets last bucketMillis.
+     */
+    private static String addToRollup(String table, long bucketMillis) {
+        String bucketStart = "new." + SalesEntry.COLUMN_TIME + " - new." + SalesEntry.COLUMN_TIME
+                + " % " + bucketMillis;
+        String key = " WHERE " + SalesEntry.COLUMN_BUCKET_START + " = " + bucketStart + " AND "
+                + SalesEntry.COLUMN_FRUIT_ID + " = new." + SalesEntry.COLUMN_FRUIT_ID;
+        return "INSERT OR IGNORE INTO " + table + " VALUES (" + bucketStart + ", new."
+                + SalesEntry.COLUMN_FRUIT_ID + ", 0, 0, 0); UPDATE " + table + " SET "
+                + SalesEntry.COLUMN_QUANTITY + " = " + SalesEntry.COLUMN_QUANTITY + " + new."
+                + SalesEntry.COLUMN_QUANTITY + ", " + SalesEntry.COLUMN_REVENUE + " = "
+                + SalesEntry.COLUMN_REVENUE + " + new." + SalesEntry.COLUMN_REVENUE + ", "
+                + SalesEntry.COLUMN_SALE_COUNT + " = " + SalesEntry.COLUMN_SALE_COUNT + " + 1"
+                + key;
+    }
+
+    /**
+     * Return the statement of a trigger that appends a movement of the given delta to the ledger,
+     * for the fruit of the given trigger row ("new" or "old").
+     */
+    private static String appendMovement(String row, String delta) {
+        return "INSERT INTO " + MovementEntry.TABLE_NAME + " (" + MovementEntry.COLUMN_FRUIT_ID
+                + ", " + MovementEntry.COLUMN_DELTA + ", " + MovementEntry.COLUMN_TIME
+                + ") VALUES (" + row + "." + FruitEntry._ID + ", " + delta + ", " + SQL_NOW_MILLIS
+                + ")";
+    }
+
+    /**
+     * Compare the statistics with a full recompute from the fruits table. If they differ, they
+     * are replaced by the recomputed ones. This reads the whole table, it is only meant for
+     * checks. It must be called inside a transaction, so no write happens in between.
+     * Return true if the statistics were consistent.
+     */
+    static boolean checkStats(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT " + StatsEntry.COLUMN_TOTAL_STOCK_VALUE + ", "
+                + StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG + ", "
+                + StatsEntry.COLUMN_OUT_OF_STOCK_COUNT + ", computed.* FROM "
+                + StatsEntry.TABLE_NAME + ", (" + SQL_COMPUTE_STATS + ") AS computed", null);
+        boolean consistent;
+        try {
+            // The computed columns follow the 3 stored ones, after the ID of the row.
+            consistent = cursor.moveToFirst() && cursor.getLong(0) == cursor.getLong(4)
+                    && cursor.getLong(1) == cursor.getLong(5)
+                    && cursor.getLong(2) == cursor.getLong(6);
+        } finally {
+            cursor.close();
+        }
+        if (!consistent) {
+            db.execSQL(SQL_FILL_STATS_TABLE);
+        }
+        return consistent;
+    }
+
+    /**
+     * Apply all the migrations from the given version to the current version. This is called
+     * inside the transaction opened by {@link SQLiteOpenHelper}, so a failed migration doesn't
+     * leave the database half upgraded.
+     */
+    private static void migrate(SQLiteDatabase db, int fromVersion) {
+        for (int version = fromVersion; version < DATABASE_VERSION; version++) {
+            for (String sql : MIGRATIONS[version - 1]) {
+                db.execSQL(sql);
+            }
+        }
+    }
+}
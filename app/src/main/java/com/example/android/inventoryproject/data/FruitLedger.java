@@ -0,0 +1,150 @@
+package com.example.android.inventoryproject.data;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.MovementEntry;
+
+/**
+ * Operations on the ledger of the stock movements, filled by the triggers of
+ * {@link FruitDbHelper}.
+ * The quantity of a fruit according to the ledger is the quantity of its snapshot (0 without
+ * snapshot) plus the deltas of the movements that follow the snapshot. The compaction folds the
+ * movements into the snapshots, so replaying the ledger only reads the recent movements, and
+ * removes the movements older than the retention period. The more recent ones are kept as an
+ * audit trail.
+ * The methods must be called inside a transaction, so no movement is appended in between.
+ * The compaction can also be split into several transactions, so it doesn't hold the database
+ * for long: {@link #takeSnapshots}, then {@link #removeMovements} by chunks, then
+ * {@link #removeDeletedSnapshots}.
+ */
+final class FruitLedger {
+
+    // Default time during which the movements are kept after a compaction: 90 days.
+    static final long DEFAULT_RETENTION_MILLIS = 90L * 24 * 60 * 60 * 1000;
+
+    // Quantity of each fruit according to the ledger, as the "LedgerQuantity" column.
+    private static final String SQL_REPLAY = "SELECT " + FruitEntry.TABLE_NAME + "."
+            + FruitEntry._ID + " AS " + FruitEntry._ID + ", " + FruitEntry.TABLE_NAME + "."
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " AS "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", COALESCE(snapshots."
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", 0) + COALESCE((SELECT SUM("
+            + MovementEntry.COLUMN_DELTA + ") FROM " + MovementEntry.TABLE_NAME + " WHERE "
+            + MovementEntry.COLUMN_FRUIT_ID + " = " + FruitEntry.TABLE_NAME + "."
+            + FruitEntry._ID + " AND " + MovementEntry._ID + " > COALESCE(snapshots."
+            + MovementEntry.COLUMN_LAST_MOVEMENT_ID + ", 0)), 0) AS LedgerQuantity FROM "
+            + FruitEntry.TABLE_NAME + " LEFT JOIN " + MovementEntry.SNAPSHOTS_TABLE_NAME
+            + " AS snapshots ON snapshots." + MovementEntry.COLUMN_FRUIT_ID + " = "
+            + FruitEntry.TABLE_NAME + "." + FruitEntry._ID;
+
+    // Moves the snapshot of each fruit with new movements after its last movement.
+    private static final String SQL_TAKE_SNAPSHOTS = "INSERT OR REPLACE INTO "
+            + MovementEntry.SNAPSHOTS_TABLE_NAME + " (" + MovementEntry.COLUMN_FRUIT_ID + ", "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+            + MovementEntry.COLUMN_LAST_MOVEMENT_ID + ", " + MovementEntry.COLUMN_TIME
+            + ") SELECT movements." + MovementEntry.COLUMN_FRUIT_ID + ", COALESCE(snapshots."
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", 0) + SUM(movements."
+            + MovementEntry.COLUMN_DELTA + "), MAX(movements." + MovementEntry._ID + "), "
+            + FruitDbHelper.SQL_NOW_MILLIS + " FROM " + MovementEntry.TABLE_NAME
+            + " AS movements LEFT JOIN " + MovementEntry.SNAPSHOTS_TABLE_NAME
+            + " AS snapshots ON snapshots." + MovementEntry.COLUMN_FRUIT_ID + " = movements."
+            + MovementEntry.COLUMN_FRUIT_ID + " WHERE movements." + MovementEntry._ID
+            + " > COALESCE(snapshots." + MovementEntry.COLUMN_LAST_MOVEMENT_ID + ", 0) GROUP BY "
+            + "movements." + MovementEntry.COLUMN_FRUIT_ID;
+
+    // Removes a chunk of the oldest movements, up to a movement (?1) and before a time (?2), at
+    // most ?3 movements.
+    private static final String SQL_REMOVE_MOVEMENTS = "DELETE FROM " + MovementEntry.TABLE_NAME
+            + " WHERE " + MovementEntry._ID + " IN (SELECT " + MovementEntry._ID + " FROM "
+            + MovementEntry.TABLE_NAME + " WHERE " + MovementEntry._ID + " <= ?1 AND "
+            + MovementEntry.COLUMN_TIME + " < ?2 ORDER BY " + MovementEntry._ID + " LIMIT ?3)";
+
+    // Removes the snapshots of the deleted fruits once their movements are removed.
+    private static final String SQL_REMOVE_DELETED_SNAPSHOTS = "DELETE FROM "
+            + MovementEntry.SNAPSHOTS_TABLE_NAME + " WHERE " + MovementEntry.COLUMN_FRUIT_ID
+            + " NOT IN (SELECT " + FruitEntry._ID + " FROM " + FruitEntry.TABLE_NAME
+            + ") AND NOT EXISTS (SELECT 1 FROM " + MovementEntry.TABLE_NAME + " WHERE "
+            + MovementEntry.TABLE_NAME + "." + MovementEntry.COLUMN_FRUIT_ID + " = "
+            + MovementEntry.SNAPSHOTS_TABLE_NAME + "." + MovementEntry.COLUMN_FRUIT_ID + ")";
+
+    private FruitLedger() {
+    }
+
+    /**
+     * Return the quantity of a fruit according to the ledger.
+     */
+    static long quantityOf(SQLiteDatabase db, long fruitId) {
+        return DatabaseUtils.longForQuery(db, "SELECT LedgerQuantity FROM (" + SQL_REPLAY
+                + " WHERE " + FruitEntry.TABLE_NAME + "." + FruitEntry._ID + " = ?)", new
+                String[]{String.valueOf(fruitId)});
+    }
+
+    /**
+     * Replay the ledger for all the fruits, and return the IDs of the fruits whose quantity is
+     * not the one of the ledger.
+     */
+    static long[] findInconsistentFruits(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT " + FruitEntry._ID + " FROM (" + SQL_REPLAY
+                + ") WHERE " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " <> LedgerQuantity",
+                null);
+        try {
+            long[] ids = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Fold all the movements into the snapshots, then remove the movements older than the given
+     * time, which are all included in the snapshots.
+     * Return the number of movements removed.
+     */
+    static int compact(SQLiteDatabase db, long removeBeforeMillis) {
+        long lastMovementId = takeSnapshots(db);
+        int removed = removeMovements(db, lastMovementId, removeBeforeMillis, Integer.MAX_VALUE);
+        removeDeletedSnapshots(db);
+        return removed;
+    }
+
+    /**
+     * Fold all the movements into the snapshots.
+     * Return the ID of the last movement folded, 0 if there is none.
+     */
+    static long takeSnapshots(SQLiteDatabase db) {
+        db.execSQL(SQL_TAKE_SNAPSHOTS);
+        return DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(" + MovementEntry._ID
+                + "), 0) FROM " + MovementEntry.TABLE_NAME, null);
+    }
+
+    /**
+     * Remove the oldest movements folded into the snapshots, up to the given movement, that are
+     * older than the given time, at most the given number.
+     * Return the number of movements removed.
+     */
+    static int removeMovements(SQLiteDatabase db, long lastMovementId, long removeBeforeMillis,
+                               int limit) {
+        SQLiteStatement statement = db.compileStatement(SQL_REMOVE_MOVEMENTS);
+        try {
+            statement.bindLong(1, lastMovementId);
+            statement.bindLong(2, removeBeforeMillis);
+            statement.bindLong(3, limit);
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Remove the snapshots of the deleted fruits whose movements have all been removed.
+     */
+    static void removeDeletedSnapshots(SQLiteDatabase db) {
+        db.execSQL(SQL_REMOVE_DELETED_SNAPSHOTS);
+    }
+}
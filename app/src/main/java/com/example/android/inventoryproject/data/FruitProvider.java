@@ -1,15 +1,52 @@
 package com.example.android.inventoryproject.data;
 
+import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
 import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.MovementEntry;
+import com.example.android.inventoryproject.data.FruitContract.SalesEntry;
+import com.example.android.inventoryproject.data.FruitContract.StatsEntry;
 
 /**
  * {@link ContentProvider} for the Inventory app.
@@ -24,6 +61,54 @@ public class FruitProvider extends ContentProvider {
     // URI matcher code for the content URI for a single fruit in the fruits table
     private static final int FRUIT_ID = 101;
 
+    // URI matcher code for the content URI for the summary of the fruits, used by the list
+    private static final int FRUITS_SUMMARY = 102;
+
+    // URI matcher code for the content URI for the full-text search over the fruits
+    private static final int FRUITS_SEARCH = 103;
+
+    // URI matcher code for the content URI for the statistics of the inventory
+    private static final int FRUITS_STATS = 104;
+
+    // URI matcher code for the content URI for the ledger of the stock movements
+    private static final int FRUITS_MOVEMENTS = 105;
+
+    // URI matcher codes for the content URIs for the sales and their hourly and daily rollups
+    private static final int SALES = 106;
+    private static final int SALES_HOURLY = 107;
+    private static final int SALES_DAILY = 108;
+
+    // URI matcher code for the content URI for the CSV export of the fruits
+    private static final int FRUITS_EXPORT = 109;
+
+    // Operations counted by the metrics, and their names.
+    private static final int OPERATION_QUERY = 0;
+    private static final int OPERATION_INSERT = 1;
+    private static final int OPERATION_BULK_INSERT = 2;
+    private static final int OPERATION_UPDATE = 3;
+    private static final int OPERATION_DELETE = 4;
+    private static final int OPERATION_ADJUST_QUANTITY = 5;
+    private static final int OPERATION_SELL = 6;
+    private static final int OPERATION_APPLY_BATCH = 7;
+    private static final String[] sMetricsOperations = {"query", "insert", "bulkInsert",
+            "update", "delete", "adjustQuantity", "sell", "applyBatch"};
+
+    // Names of the URI matcher codes in the metrics, indexed by code - FRUITS.
+    private static final String[] sMetricsTargets = {"FRUITS", "FRUIT_ID", "FRUITS_SUMMARY",
+            "FRUITS_SEARCH", "FRUITS_STATS", "FRUITS_MOVEMENTS", "SALES", "SALES_HOURLY",
+            "SALES_DAILY", "FRUITS_EXPORT"};
+
+    // Maximum number of reasons for skipping rows returned by an import.
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    // Time between two compactions of the ledger, in milliseconds. The first one runs shortly
+    // after the provider is created.
+    private static final long LEDGER_COMPACTION_INTERVAL_MILLIS = 6 * 60 * 60 * 1000;
+    private static final long LEDGER_COMPACTION_DELAY_MILLIS = 60 * 1000;
+
+    // Maximum number of movements removed by each transaction of a compaction.
+    private static final int LEDGER_COMPACTION_CHUNK_SIZE = 500;
+
     // The UriMatcher will match a content URI to a corresponding code for the fruits table.
     private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
@@ -33,23 +118,267 @@ public class FruitProvider extends ContentProvider {
 
         sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_FRUITS + "/#",
                 FRUIT_ID);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_FRUITS_SUMMARY,
+                FRUITS_SUMMARY);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_FRUITS_SEARCH,
+                FRUITS_SEARCH);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_FRUITS_STATS,
+                FRUITS_STATS);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_FRUITS_MOVEMENTS,
+                FRUITS_MOVEMENTS);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_SALES, SALES);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_SALES_HOURLY,
+                SALES_HOURLY);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_SALES_DAILY,
+                SALES_DAILY);
+
+        sUriMatcher.addURI(FruitContract.CONTENT_AUTHORITY, FruitContract.PATH_FRUITS_EXPORT,
+                FRUITS_EXPORT);
     }
 
+    // Columns that can be queried from the fruits table.
+    private static final Set<String> sFruitColumns = new HashSet<>(Arrays.asList(
+            FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_NAME, FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG,
+            FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME,
+            FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER,
+            FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD));
+
+    // Columns that can be queried from the statistics.
+    private static final Set<String> sStatsColumns = new HashSet<>(Arrays.asList(
+            StatsEntry._ID, StatsEntry.COLUMN_TOTAL_STOCK_VALUE,
+            StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG, StatsEntry.COLUMN_OUT_OF_STOCK_COUNT));
+
+    // Columns that can be queried from the ledger.
+    private static final Set<String> sMovementColumns = new HashSet<>(Arrays.asList(
+            MovementEntry._ID, MovementEntry.COLUMN_FRUIT_ID, MovementEntry.COLUMN_DELTA,
+            MovementEntry.COLUMN_TIME));
+
+    // Columns that can be queried from the sales, and from their rollups.
+    private static final Set<String> sSalesColumns = new HashSet<>(Arrays.asList(
+            SalesEntry._ID, SalesEntry.COLUMN_FRUIT_ID, SalesEntry.COLUMN_QUANTITY,
+            SalesEntry.COLUMN_REVENUE, SalesEntry.COLUMN_TIME));
+    private static final Set<String> sRollupColumns = new HashSet<>(Arrays.asList(
+            SalesEntry.COLUMN_BUCKET_START, SalesEntry.COLUMN_FRUIT_ID, SalesEntry.COLUMN_QUANTITY,
+            SalesEntry.COLUMN_REVENUE, SalesEntry.COLUMN_SALE_COUNT));
+
+    // Columns that can be queried from the summary of the fruits.
+    private static final Set<String> sSummaryColumns = new HashSet<>(Arrays.asList(FruitEntry
+            .SUMMARY_PROJECTION));
+
+    // Precompiled insert statement used by bulkInsert(). The price and quantity fall back to the
+    // table defaults (1) when they are not bound, and the reorder threshold to 0.
+    static final String SQL_INSERT_FRUIT = "INSERT INTO " + FruitEntry.TABLE_NAME + " ("
+            + FruitEntry.COLUMN_PRODUCT_NAME + ", "
+            + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG + ", "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+            + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+            + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER + ", "
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD
+            + ") VALUES (?, COALESCE(?, 1), COALESCE(?, 1), ?, ?, COALESCE(?, 0))";
+
+    // Statement that adds a delta to the quantity of a fruit, as long as the quantity doesn't
+    // become negative.
+    private static final String SQL_ADJUST_QUANTITY = "UPDATE " + FruitEntry.TABLE_NAME
+            + " SET " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " = "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " + ?1"
+            + " WHERE " + FruitEntry._ID + " = ?2"
+            + " AND " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " + ?1 >= 0";
+
+    // Query that returns the quantity and the reorder threshold of a single fruit.
+    private static final String SQL_SELECT_QUANTITY = "SELECT "
+            + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+            + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + " FROM " + FruitEntry.TABLE_NAME
+            + " WHERE " + FruitEntry._ID + " = ?";
+
+    // Query that returns 1 if the queue of the low stock alerts isn't empty, 0 otherwise.
+    private static final String SQL_HAS_LOW_STOCK_ALERTS = "SELECT EXISTS (SELECT 1 FROM "
+            + FruitEntry.LOW_STOCK_TABLE_NAME + ")";
+
+    // Statement that records the sale of a quantity (?1) of a fruit (?2) at a time (?3), at the
+    // current price of the fruit. The triggers of the sales table add it to the rollups.
+    private static final String SQL_INSERT_SALE = "INSERT INTO " + SalesEntry.TABLE_NAME + " ("
+            + SalesEntry.COLUMN_FRUIT_ID + ", " + SalesEntry.COLUMN_QUANTITY + ", "
+            + SalesEntry.COLUMN_REVENUE + ", " + SalesEntry.COLUMN_TIME + ") SELECT "
+            + FruitEntry._ID + ", ?1, " + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG + " * ?1, ?3 FROM "
+            + FruitEntry.TABLE_NAME + " WHERE " + FruitEntry._ID + " = ?2";
+
     // Database helper object.
     private FruitDbHelper mDbHelper;
 
+    // Writes the CSV export to the pipe opened by openFile().
+    private final PipeDataWriter<Void> mExportWriter = new PipeDataWriter<Void>() {
+        @Override
+        public void writeDataToPipe(ParcelFileDescriptor output, final Uri uri, String mimeType,
+                                    Bundle opts, Void args) {
+            FileOutputStream stream = new FileOutputStream(output.getFileDescriptor());
+            FruitCsvExporter exporter = new FruitCsvExporter(mDbHelper.getReadableDatabase(),
+                    FruitCsvExporter.DEFAULT_WINDOW_SIZE);
+            try {
+                exporter.export(stream.getChannel(), new FruitCsvExporter.ProgressListener() {
+                    @Override
+                    public void onProgress(long rowsWritten, long totalRows) {
+                        if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+                            Log.d(LOG_TAG, "Exported " + rowsWritten + " of " + totalRows
+                                    + " fruits");
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                // Usually the reader closing the pipe before the end.
+                Log.w(LOG_TAG, "Failed to export " + uri, e);
+            }
+            // The pipe itself is closed by openPipeHelper() on return.
+        }
+    };
+
+    // URIs waiting to be notified once the batch running on the current thread is committed.
+    // It is null when no batch is running on the current thread.
+    private final ThreadLocal<Set<Uri>> mPendingNotifications = new ThreadLocal<>();
+
+    // Dispatcher that coalesces the change notifications.
+    private NotificationDispatcher mNotificationDispatcher;
+
+    // Worker that hands the low stock alerts raised by the database to the notifier.
+    private LowStockWorker mLowStockWorker;
+
+    // Handler of the background thread of the notifications, used to open the database.
+    private Handler mBackgroundHandler;
+
+    // Handler of the low priority thread that compacts the ledger periodically, so the
+    // compaction doesn't hold up the notifications and the alerts.
+    private Handler mMaintenanceHandler;
+
+    // Opens the database, creating or upgrading it if needed, ahead of the first query.
+    private final Runnable mOpenDatabaseRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long start = SystemClock.uptimeMillis();
+            mDbHelper.getWritableDatabase();
+            if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+                Log.d(LOG_TAG, "Database opened in " + (SystemClock.uptimeMillis() - start)
+                        + " ms");
+            }
+        }
+    };
+
+    // Compacts the ledger, then schedules the next compaction.
+    private final Runnable mCompactLedgerRunnable = new Runnable() {
+        @Override
+        public void run() {
+            compactLedger(FruitLedger.DEFAULT_RETENTION_MILLIS);
+            mMaintenanceHandler.postDelayed(this, LEDGER_COMPACTION_INTERVAL_MILLIS);
+        }
+    };
+
+    // Cache of the rows read by ID. It isn't written while a batch runs on the current thread:
+    // the rows changed by the batch are removed from it once the batch is committed instead.
+    private final FruitCache mCache = new FruitCache(FruitCache.DEFAULT_MAX_ROWS);
+
+    // Counters and latency histograms of the operations, per URI matcher code.
+    private final ProviderMetrics mMetrics = new ProviderMetrics(sMetricsOperations,
+            sMetricsTargets);
+
     @Override
     public boolean onCreate() {
-        mDbHelper = new FruitDbHelper(getContext());
+        mDbHelper = new FruitDbHelper(getContext(), getDatabaseName(), DatabaseSettings.DEFAULT);
+
+        // The coalesced notifications are sent from their own background thread.
+        HandlerThread notificationThread = new HandlerThread(LOG_TAG + "Notifications");
+        notificationThread.start();
+        mNotificationDispatcher = new NotificationDispatcher(getContext().getContentResolver(),
+                notificationThread.getLooper());
+
+        // The low stock alerts are handled on the same thread. Alerts may have been left in the
+        // queue by the previous process.
+        mLowStockWorker = new LowStockWorker(mDbHelper, notificationThread.getLooper(),
+                createLowStockListener());
+        mLowStockWorker.wakeUp();
+
+        mBackgroundHandler = new Handler(notificationThread.getLooper());
+
+        HandlerThread maintenanceThread = new HandlerThread(LOG_TAG + "Maintenance", Process
+                .THREAD_PRIORITY_BACKGROUND);
+        maintenanceThread.start();
+        mMaintenanceHandler = new Handler(maintenanceThread.getLooper());
+        mMaintenanceHandler.postDelayed(mCompactLedgerRunnable, LEDGER_COMPACTION_DELAY_MILLIS);
+
+        // The provider is created with the process, on the main thread, so nothing here touches
+        // the database: the helper only opens it when it is first used. Open it on the
+        // background thread right away instead of during the first query, which usually comes
+        // from the list of the main activity. The helper opens it only once, a query made in
+        // the meantime waits for it.
+        mBackgroundHandler.postAtFrontOfQueue(mOpenDatabaseRunnable);
         return true;
     }
 
+    /**
+     * Get the name of the database file from the application, if it uses another one than the
+     * file of the app.
+     */
+    private String getDatabaseName() {
+        Context application = getContext().getApplicationContext();
+        if (application instanceof FruitDbHelper.DatabaseNameSource) {
+            return ((FruitDbHelper.DatabaseNameSource) application).getFruitDatabaseName();
+        }
+        return FruitDbHelper.DATABASE_NAME;
+    }
+
+    /**
+     * Get the listener of the low stock alerts from the application, or log the alerts if it
+     * doesn't provide one.
+     */
+    private LowStockWorker.Listener createLowStockListener() {
+        Context application = getContext().getApplicationContext();
+        if (application instanceof LowStockWorker.ListenerFactory) {
+            return ((LowStockWorker.ListenerFactory) application).createLowStockListener();
+        }
+        return new LowStockWorker.Listener() {
+            @Override
+            public void onLowStock(List<LowStockEvent> events) {
+                Log.w(LOG_TAG, events.size() + " fruits are low on stock");
+            }
+        };
+    }
+
+    /**
+     * Stop the background thread and close the database. The system never calls this, it is
+     * meant for the tests and benchmarks that create several providers in the same process.
+     * The notifications and alerts that were still pending are dropped.
+     */
+    @Override
+    public void shutdown() {
+        mBackgroundHandler.removeCallbacksAndMessages(null);
+        mBackgroundHandler.getLooper().quit();
+        mMaintenanceHandler.removeCallbacksAndMessages(null);
+        mMaintenanceHandler.getLooper().quit();
+        mDbHelper.close();
+    }
+
     /**
      * Query the database using the UriMatcher.
      */
     @Override
     public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
                         String sortOrder) {
+        return query(uri, projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    /**
+     * Query the database using the UriMatcher. If the query is cancelled through the
+     * CancellationSignal while it runs, it stops and throws an
+     * {@link android.os.OperationCanceledException}.
+     */
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder, CancellationSignal cancellationSignal) {
+        long start = System.nanoTime();
         SQLiteDatabase database = mDbHelper.getReadableDatabase();
         Cursor cursor;
 
@@ -57,17 +386,57 @@ public class FruitProvider extends ContentProvider {
         // options available.
         int match = sUriMatcher.match(uri);
         switch (match) {
-            // This option will query the whole database.
+            // This option will query the whole database, or a single page of it if the URI has
+            // paging parameters.
             case FRUITS:
-                cursor = database.query(FruitEntry.TABLE_NAME, projection, selection,
-                        selectionArgs, null, null, sortOrder);
+                checkProjection(uri, projection);
+                cursor = queryFruits(database, uri, projection, selection, selectionArgs,
+                        sortOrder, cancellationSignal);
+                break;
+            // This option is the same as FRUITS, but only with the columns of the summary.
+            case FRUITS_SUMMARY:
+                cursor = queryFruits(database, uri, trimSummaryProjection(projection),
+                        selection, selectionArgs, sortOrder, cancellationSignal);
+                break;
+            // This option will search the fruits by name and supplier name.
+            case FRUITS_SEARCH:
+                checkProjection(uri, projection);
+                cursor = searchFruits(database, uri, projection, cancellationSignal);
+                break;
+            // This option will read the single row of statistics, maintained by the database.
+            case FRUITS_STATS:
+                checkColumns(uri, projection, sStatsColumns);
+                cursor = rawQuery(database, SQLiteQueryBuilder.buildQueryString(false,
+                        StatsEntry.TABLE_NAME, projection, null, null, null, null, null), null,
+                        cancellationSignal);
+                break;
+            // This option will read the movements of the ledger, with an optional selection.
+            case FRUITS_MOVEMENTS:
+                checkColumns(uri, projection, sMovementColumns);
+                cursor = rawQuery(database, SQLiteQueryBuilder.buildQueryString(false,
+                        MovementEntry.TABLE_NAME, projection, selection, null, null, sortOrder,
+                        null), selectionArgs, cancellationSignal);
+                break;
+            // These options will read the sales, or their rollups, with an optional selection.
+            case SALES:
+                checkColumns(uri, projection, sSalesColumns);
+                cursor = rawQuery(database, SQLiteQueryBuilder.buildQueryString(false,
+                        SalesEntry.TABLE_NAME, projection, selection, null, null, sortOrder,
+                        null), selectionArgs, cancellationSignal);
+                break;
+            case SALES_HOURLY:
+            case SALES_DAILY:
+                checkColumns(uri, projection, sRollupColumns);
+                cursor = rawQuery(database, SQLiteQueryBuilder.buildQueryString(false,
+                        match == SALES_HOURLY ? SalesEntry.HOURLY_TABLE_NAME
+                                : SalesEntry.DAILY_TABLE_NAME, projection, selection, null, null,
+                        sortOrder, null), selectionArgs, cancellationSignal);
                 break;
             // This option will query a single fruit, based on its ID.
             case FRUIT_ID:
-                selection = FruitEntry._ID + "=?";
-                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
-                cursor = database.query(FruitEntry.TABLE_NAME, projection, selection,
-                        selectionArgs, null, null, sortOrder);
+                checkProjection(uri, projection);
+                cursor = queryFruit(database, ContentUris.parseId(uri), projection,
+                        cancellationSignal);
                 break;
             // This option is in case none of the options above worked.
             default:
@@ -76,19 +445,252 @@ public class FruitProvider extends ContentProvider {
         // Set notification URI on the Cursor,
         // so we know what content URI the Cursor was created for.
         // If the data at this URI changes, then we know we need to update the Cursor.
-        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        // A cursor over several fruits listens to CHANGES_URI, which is notified once per write,
+        // instead of the URIs of every single fruit.
+        Uri notificationUri = match == FRUIT_ID ? uri : FruitEntry.CHANGES_URI;
+        cursor.setNotificationUri(getContext().getContentResolver(), notificationUri);
+
+        // The query only runs when the cursor is first moved: counting the rows makes it run
+        // now, so its time is measured (the loaders count them right away anyway).
+        recordMetrics(OPERATION_QUERY, match, start, cursor.getCount());
 
         // Return the cursor.
         return cursor;
     }
 
+    /**
+     * Query a single fruit. The fruit is read from the cache if it is there, otherwise its whole
+     * row is read from the database and kept in the cache.
+     */
+    private Cursor queryFruit(SQLiteDatabase database, long id, String[] projection,
+                              CancellationSignal cancellationSignal) {
+        ContentValues row = mCache.get(id);
+        if (row == null) {
+            long cacheVersion = mCache.getVersion();
+            Cursor cursor = rawQuery(database, SQLiteQueryBuilder.buildQueryString(false,
+                    FruitEntry.TABLE_NAME, FruitCache.COLUMNS, FruitEntry._ID + "=?", null, null,
+                    null, null), new String[]{String.valueOf(id)}, cancellationSignal);
+            try {
+                if (cursor.moveToFirst()) {
+                    row = FruitCache.readRow(cursor);
+                }
+            } finally {
+                cursor.close();
+            }
+            // A batch running on this thread could still be rolled back.
+            if (row != null && mPendingNotifications.get() == null) {
+                mCache.putIfUnchanged(id, row, cacheVersion);
+            }
+        }
+        return FruitCache.toCursor(row, projection);
+    }
+
+    /**
+     * Check that the projection only contains columns of the fruits table, and throw an
+     * {@link IllegalArgumentException} if it doesn't.
+     */
+    private static void checkProjection(Uri uri, String[] projection) {
+        checkColumns(uri, projection, sFruitColumns);
+    }
+
+    /**
+     * Check that the projection only contains the given columns, and throw an
+     * {@link IllegalArgumentException} if it doesn't.
+     */
+    private static void checkColumns(Uri uri, String[] projection, Set<String> columns) {
+        if (projection == null) {
+            return;
+        }
+        for (String column : projection) {
+            if (!columns.contains(column)) {
+                throw new IllegalArgumentException("Unknown column " + column + " for " + uri);
+            }
+        }
+    }
+
+    /**
+     * Remove the columns that are not part of the summary from the projection, so the list only
+     * copies the data it displays. Return the whole summary projection if the given projection is
+     * null or has no summary column.
+     */
+    private static String[] trimSummaryProjection(String[] projection) {
+        if (projection == null) {
+            return FruitEntry.SUMMARY_PROJECTION;
+        }
+        ArrayList<String> columns = new ArrayList<>(projection.length);
+        for (String column : projection) {
+            if (sSummaryColumns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        if (columns.isEmpty()) {
+            return FruitEntry.SUMMARY_PROJECTION;
+        }
+        return columns.toArray(new String[columns.size()]);
+    }
+
+    /**
+     * Query the fruits table, applying the paging parameters of the URI if there are any:
+     * {@link FruitContract#QUERY_PARAMETER_AFTER_ID} and
+     * {@link FruitContract#QUERY_PARAMETER_UNTIL_ID} restrict the query to a range of IDs
+     * (keyset paging, the rows are then sorted by ID), while
+     * {@link FruitContract#QUERY_PARAMETER_LIMIT} and {@link FruitContract#QUERY_PARAMETER_OFFSET}
+     * limit the number of rows returned.
+     */
+    private Cursor queryFruits(SQLiteDatabase database, Uri uri, String[] projection, String
+            selection, String[] selectionArgs, String sortOrder, CancellationSignal
+            cancellationSignal) {
+        String afterId = getNumberParameter(uri, FruitContract.QUERY_PARAMETER_AFTER_ID);
+        String untilId = getNumberParameter(uri, FruitContract.QUERY_PARAMETER_UNTIL_ID);
+        if (afterId != null || untilId != null) {
+            if (afterId != null) {
+                selection = DatabaseUtils.concatenateWhere(selection, FruitEntry._ID + ">?");
+                selectionArgs = DatabaseUtils.appendSelectionArgs(selectionArgs, new
+                        String[]{afterId});
+            }
+            if (untilId != null) {
+                selection = DatabaseUtils.concatenateWhere(selection, FruitEntry._ID + "<=?");
+                selectionArgs = DatabaseUtils.appendSelectionArgs(selectionArgs, new
+                        String[]{untilId});
+            }
+            // Keyset paging only works if the rows are sorted by ID.
+            sortOrder = FruitEntry._ID + " ASC";
+        }
+
+        String limit = getNumberParameter(uri, FruitContract.QUERY_PARAMETER_LIMIT);
+        String offset = getNumberParameter(uri, FruitContract.QUERY_PARAMETER_OFFSET);
+        if (offset != null) {
+            if (limit == null) {
+                // SQLite doesn't accept an offset without a limit, -1 means no limit.
+                limit = "-1";
+            }
+            limit = offset + "," + limit;
+        }
+
+        return rawQuery(database, SQLiteQueryBuilder.buildQueryString(false, FruitEntry
+                .TABLE_NAME, projection, selection, null, null, sortOrder, limit), selectionArgs,
+                cancellationSignal);
+    }
+
+    /**
+     * Search the fruits matching the {@link FruitContract#QUERY_PARAMETER_SEARCH} of the URI in
+     * the full-text search table. Every word of the search text must match the beginning of a
+     * word of the name or supplier name. The fruits with the most matches come first, then they
+     * are sorted by name.
+     */
+    private Cursor searchFruits(SQLiteDatabase database, Uri uri, String[] projection,
+                                CancellationSignal cancellationSignal) {
+        String matchExpression = buildMatchExpression(uri.getQueryParameter(FruitContract
+                .QUERY_PARAMETER_SEARCH));
+        // Without any word to search, nothing matches.
+        if (matchExpression.isEmpty()) {
+            return rawQuery(database, SQLiteQueryBuilder.buildQueryString(false, FruitEntry
+                    .TABLE_NAME, projection, "0", null, null, null, null), null,
+                    cancellationSignal);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (projection == null) {
+            sql.append(FruitEntry.TABLE_NAME).append(".*");
+        } else {
+            for (int i = 0; i < projection.length; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(FruitEntry.TABLE_NAME).append('.').append(projection[i])
+                        .append(" AS ").append(projection[i]);
+            }
+        }
+        // The offsets() of a fruit has four space-separated integers for each matching word:
+        // the number of matches is the number of integers divided by four. The length of the
+        // text itself also depends on the positions of the matches.
+        sql.append(" FROM ").append(FruitEntry.TABLE_NAME)
+                .append(" JOIN (SELECT docid, (length(offsets) - length(replace(offsets, ' ', ''))")
+                .append(" + 1) / 4 AS rank FROM (SELECT docid, offsets(")
+                .append(FruitEntry.SEARCH_TABLE_NAME).append(") AS offsets FROM ")
+                .append(FruitEntry.SEARCH_TABLE_NAME).append(" WHERE ")
+                .append(FruitEntry.SEARCH_TABLE_NAME).append(" MATCH ?)) AS matches ON ")
+                .append(FruitEntry.TABLE_NAME).append('.').append(FruitEntry._ID)
+                .append(" = matches.docid ORDER BY matches.rank DESC, ")
+                .append(FruitEntry.TABLE_NAME).append('.').append(FruitEntry.COLUMN_PRODUCT_NAME);
+
+        String limit = getNumberParameter(uri, FruitContract.QUERY_PARAMETER_LIMIT);
+        String offset = getNumberParameter(uri, FruitContract.QUERY_PARAMETER_OFFSET);
+        if (limit != null || offset != null) {
+            sql.append(" LIMIT ").append(limit == null ? "-1" : limit);
+            if (offset != null) {
+                sql.append(" OFFSET ").append(offset);
+            }
+        }
+        return rawQuery(database, sql.toString(), new String[]{matchExpression},
+                cancellationSignal);
+    }
+
+    /**
+     * Run a query that can be cancelled through the given CancellationSignal. The signal is
+     * always null before Jelly Bean, where the provider can't be given one.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static Cursor rawQuery(SQLiteDatabase database, String sql, String[] selectionArgs,
+                                   CancellationSignal cancellationSignal) {
+        if (cancellationSignal == null) {
+            return database.rawQuery(sql, selectionArgs);
+        }
+        return database.rawQuery(sql, selectionArgs, cancellationSignal);
+    }
+
+    /**
+     * Turn the search text into a full-text MATCH expression: each word becomes a prefix query,
+     * and all of them must match. The characters that have a meaning in the query syntax are
+     * removed.
+     */
+    static String buildMatchExpression(String searchText) {
+        if (searchText == null) {
+            return "";
+        }
+        StringBuilder expression = new StringBuilder();
+        for (String word : searchText.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (expression.length() > 0) {
+                expression.append(' ');
+            }
+            expression.append(word).append('*');
+        }
+        return expression.toString();
+    }
+
+    /**
+     * Return the value of the given paging parameter of the URI, or null if the URI doesn't have
+     * it. Throw an {@link IllegalArgumentException} if the value is not a positive number.
+     */
+    private static String getNumberParameter(Uri uri, String parameter) {
+        String value = uri.getQueryParameter(parameter);
+        if (value == null) {
+            return null;
+        }
+        try {
+            long number = Long.parseLong(value);
+            if (number < 0) {
+                throw new IllegalArgumentException("Invalid " + parameter + " in " + uri);
+            }
+            return String.valueOf(number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + parameter + " in " + uri, e);
+        }
+    }
+
     @Override
     public Uri insert(Uri uri, ContentValues contentValues) {
+        long start = System.nanoTime();
         final int match = sUriMatcher.match(uri);
         // Catch the error if the uri was not valid.
         switch (match) {
             case FRUITS:
-                return insertFruit(uri, contentValues);
+                Uri newUri = insertFruit(uri, contentValues);
+                recordMetrics(OPERATION_INSERT, match, start, newUri == null ? 0 : 1);
+                return newUri;
             default:
                 throw new IllegalArgumentException("Insertion is not supported for " + uri);
         }
@@ -101,6 +703,78 @@ public class FruitProvider extends ContentProvider {
     private Uri insertFruit(Uri uri, ContentValues values) {
 
         // Check if all the values given are not null and catch the error if any is null.
+        validateNewFruit(values);
+
+        // Insert the new fruit with the given values.
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        long id = database.insert(FruitEntry.TABLE_NAME, null, values);
+        if (id == -1) {
+            Log.e(LOG_TAG, "Failed to insert row for " + uri);
+            return null;
+        }
+        if (mPendingNotifications.get() == null) {
+            mCache.insert(id, values);
+        }
+        // Notify all listeners that the data has changed for the new fruit.
+        notifyFruitsChanged(new long[]{id});
+
+        // Return the new URI with the ID appended at the end.
+        return ContentUris.withAppendedId(uri, id);
+    }
+
+    /**
+     * Insert several fruits at once. All the rows are validated first, then inserted inside a
+     * single transaction with a precompiled statement, and the listeners are only notified once
+     * at the end (instead of once per row with {@link #insert(Uri, ContentValues)}).
+     * Return the number of rows that were inserted.
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] valuesArray) {
+        long start = System.nanoTime();
+        final int match = sUriMatcher.match(uri);
+        if (match != FRUITS) {
+            throw new IllegalArgumentException("Insertion is not supported for " + uri);
+        }
+
+        // Validate every row before touching the database, so an invalid row doesn't leave the
+        // table half filled.
+        for (ContentValues values : valuesArray) {
+            validateNewFruit(values);
+        }
+
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        int rowsInserted = 0;
+        database.beginTransaction();
+        SQLiteStatement statement = database.compileStatement(SQL_INSERT_FRUIT);
+        try {
+            for (ContentValues values : valuesArray) {
+                bindFruit(statement, values);
+                if (statement.executeInsert() == -1) {
+                    Log.e(LOG_TAG, "Failed to insert row for " + uri);
+                } else {
+                    rowsInserted++;
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            statement.close();
+            database.endTransaction();
+        }
+
+        // Notify all listeners only once that the data has changed. Nobody can be listening to
+        // the URIs of the new fruits yet, so only the changes URI is notified.
+        if (rowsInserted != 0) {
+            notifyChange(FruitEntry.CHANGES_URI);
+        }
+        recordMetrics(OPERATION_BULK_INSERT, match, start, rowsInserted);
+        return rowsInserted;
+    }
+
+    /**
+     * Check that the given content values describe a valid new fruit.
+     * Throw an {@link IllegalArgumentException} if any value is missing or invalid.
+     */
+    static void validateNewFruit(ContentValues values) {
         String name = values.getAsString(FruitEntry.COLUMN_PRODUCT_NAME);
         if (name == null) {
             throw new IllegalArgumentException("Product requires a name");
@@ -127,44 +801,72 @@ public class FruitProvider extends ContentProvider {
             throw new IllegalArgumentException("Product requires a supplier phone number");
         }
 
-        // Insert the new fruit with the given values.
-        SQLiteDatabase database = mDbHelper.getWritableDatabase();
-        long id = database.insert(FruitEntry.TABLE_NAME, null, values);
-        if (id == -1) {
-            Log.e(LOG_TAG, "Failed to insert row for " + uri);
-            return null;
+        Integer reorderThreshold = values.getAsInteger(FruitEntry
+                .COLUMN_PRODUCT_REORDER_THRESHOLD);
+        if (reorderThreshold != null && reorderThreshold < 0) {
+            throw new IllegalArgumentException("Product requires a valid reorder threshold");
         }
-        // Notify all listeners that the data has changed for the fruit content URI.
-        getContext().getContentResolver().notifyChange(uri, null);
+    }
 
-        // Return the new URI with the ID appended at the end.
-        return ContentUris.withAppendedId(uri, id);
+    /**
+     * Bind the (already validated) content values of a fruit to the precompiled
+     * {@link #SQL_INSERT_FRUIT} statement.
+     */
+    static void bindFruit(SQLiteStatement statement, ContentValues values) {
+        statement.clearBindings();
+        statement.bindString(1, values.getAsString(FruitEntry.COLUMN_PRODUCT_NAME));
+        Integer price = values.getAsInteger(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG);
+        if (price != null) {
+            statement.bindLong(2, price);
+        }
+        Integer quantity = values.getAsInteger(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
+        if (quantity != null) {
+            statement.bindLong(3, quantity);
+        }
+        statement.bindString(4, values.getAsString(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME));
+        statement.bindString(5, values.getAsString(FruitEntry
+                .COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER));
+        Integer reorderThreshold = values.getAsInteger(FruitEntry
+                .COLUMN_PRODUCT_REORDER_THRESHOLD);
+        if (reorderThreshold != null) {
+            statement.bindLong(6, reorderThreshold);
+        }
     }
 
     @Override
     public int update(Uri uri, ContentValues contentValues, String selection, String[]
             selectionArgs) {
+        long start = System.nanoTime();
+        int rowsUpdated;
         final int match = sUriMatcher.match(uri);
         // Based on the URI, check if we are going to update one single fruit, the whole table or
         // catch an error if the URI is not valid.
         switch (match) {
             case FRUITS:
-                return updateFruit(uri, contentValues, selection, selectionArgs);
+                rowsUpdated = updateFruit(contentValues, selection, selectionArgs, null);
+                break;
             case FRUIT_ID:
+                long id = ContentUris.parseId(uri);
                 selection = FruitEntry._ID + "=?";
-                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
-                return updateFruit(uri, contentValues, selection, selectionArgs);
+                selectionArgs = new String[]{String.valueOf(id)};
+                rowsUpdated = updateFruit(contentValues, selection, selectionArgs, new
+                        long[]{id});
+                break;
             default:
                 throw new IllegalArgumentException("Update is not supported for " + uri);
         }
+        recordMetrics(OPERATION_UPDATE, match, start, rowsUpdated);
+        return rowsUpdated;
     }
 
     /**
      * Update a fruit into the database with the given content values.
+     * The IDs of the updated fruits are used to notify each of them, they are looked up from the
+     * selection if they are null.
      * Return the number of rows that were updated.
      */
-    private int updateFruit(Uri uri, ContentValues values, String selection, String[]
-            selectionArgs) {
+    private int updateFruit(ContentValues values, String selection, String[] selectionArgs,
+                            long[] ids) {
 
         // Check if any value have been changed to null, and catch the error if any is null.
         if (values.containsKey(FruitEntry.COLUMN_PRODUCT_NAME)) {
@@ -203,48 +905,534 @@ public class FruitProvider extends ContentProvider {
             }
         }
 
+        if (values.containsKey(FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD)) {
+            Integer reorderThreshold = values.getAsInteger(FruitEntry
+                    .COLUMN_PRODUCT_REORDER_THRESHOLD);
+            if (reorderThreshold == null || reorderThreshold < 0) {
+                throw new IllegalArgumentException("Product requires valid reorder threshold");
+            }
+        }
+
         // If there are no values to update, then don't try to update the database.
         if (values.size() == 0) {
             return 0;
         }
 
         // Otherwise, update the database, get the number of rows updated and notify all
-        // listeners that the given URI has changed.
+        // listeners that the updated fruits have changed.
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
-        int rowsUpdated = database.update(FruitEntry.TABLE_NAME, values, selection, selectionArgs);
+        boolean inBatch = mPendingNotifications.get() != null;
+        int rowsUpdated;
+        boolean lowStockQueued = false;
+        database.beginTransaction();
+        try {
+            if (ids == null) {
+                ids = queryIds(database, selection, selectionArgs);
+            }
+            rowsUpdated = database.update(FruitEntry.TABLE_NAME, values, selection,
+                    selectionArgs);
+            // Only a new quantity or threshold can make the trigger queue a low stock alert.
+            // The batches look at the queue once they are committed instead.
+            if (rowsUpdated != 0 && !inBatch && (values.containsKey(FruitEntry
+                    .COLUMN_PRODUCT_QUANTITY_IN_KG) || values.containsKey(FruitEntry
+                    .COLUMN_PRODUCT_REORDER_THRESHOLD))) {
+                lowStockQueued = DatabaseUtils.longForQuery(database, SQL_HAS_LOW_STOCK_ALERTS,
+                        null) != 0;
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
         if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            if (!inBatch) {
+                // The rows are dropped from the cache rather than updated, see adjustQuantity.
+                for (long id : ids) {
+                    mCache.remove(id);
+                }
+                if (lowStockQueued) {
+                    mLowStockWorker.wakeUp();
+                }
+            }
+            notifyFruitsChanged(ids);
         }
         return rowsUpdated;
     }
 
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
-
+        long start = System.nanoTime();
         SQLiteDatabase database = mDbHelper.getWritableDatabase();
         int rowsDeleted;
+        long[] ids;
         final int match = sUriMatcher.match(uri);
         // Based on the URI, check if we are going to delete one single fruit, the whole table or
         // catch an error if the URI is not valid.
         switch (match) {
             case FRUITS:
-                rowsDeleted = database.delete(FruitEntry.TABLE_NAME, selection, selectionArgs);
+                // Find the fruits that will be deleted first, to notify each of them.
+                database.beginTransaction();
+                try {
+                    ids = queryIds(database, selection, selectionArgs);
+                    rowsDeleted = database.delete(FruitEntry.TABLE_NAME, selection,
+                            selectionArgs);
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
                 break;
             case FRUIT_ID:
+                long id = ContentUris.parseId(uri);
+                ids = new long[]{id};
                 selection = FruitEntry._ID + "=?";
-                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
+                selectionArgs = new String[]{String.valueOf(id)};
                 rowsDeleted = database.delete(FruitEntry.TABLE_NAME, selection, selectionArgs);
                 break;
             default:
                 throw new IllegalArgumentException("Deletion is not supported for " + uri);
         }
-        // Get the number of rows deleted and notify all listeners that the given URI has changed.
+        // Get the number of rows deleted and notify all listeners that the deleted fruits have
+        // changed.
         if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            for (long id : ids) {
+                mCache.remove(id);
+            }
+            notifyFruitsChanged(ids);
         }
+        recordMetrics(OPERATION_DELETE, match, start, rowsDeleted);
         return rowsDeleted;
     }
 
+    /**
+     * Return the IDs of the fruits matching the selection.
+     */
+    private static long[] queryIds(SQLiteDatabase database, String selection, String[]
+            selectionArgs) {
+        Cursor cursor = database.query(FruitEntry.TABLE_NAME, new String[]{FruitEntry._ID},
+                selection, selectionArgs, null, null, null);
+        try {
+            long[] ids = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Handle the custom provider methods: {@link FruitContract#METHOD_ADJUST_QUANTITY},
+     * {@link FruitContract#METHOD_SELL},
+     * {@link FruitContract#METHOD_CONFIGURE_NOTIFICATIONS},
+     * {@link FruitContract#METHOD_GET_CACHE_STATS}, {@link FruitContract#METHOD_CHECK_STATS},
+     * {@link FruitContract#METHOD_COMPACT_LEDGER}, {@link FruitContract#METHOD_CHECK_LEDGER},
+     * {@link FruitContract#METHOD_IMPORT_CSV} and {@link FruitContract#METHOD_GET_METRICS}.
+     */
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (FruitContract.METHOD_ADJUST_QUANTITY.equals(method)) {
+            long start = System.nanoTime();
+            requireExtras(extras, "Adjustment", FruitContract.EXTRA_FRUIT_ID,
+                    FruitContract.EXTRA_QUANTITY_DELTA);
+            Bundle result = adjustQuantity(extras.getLong(FruitContract.EXTRA_FRUIT_ID),
+                    extras.getInt(FruitContract.EXTRA_QUANTITY_DELTA), false);
+            recordMetrics(OPERATION_ADJUST_QUANTITY, FRUIT_ID, start, result.isEmpty() ? 0 : 1);
+            return result;
+        }
+        if (FruitContract.METHOD_SELL.equals(method)) {
+            long start = System.nanoTime();
+            requireExtras(extras, "Sale", FruitContract.EXTRA_FRUIT_ID,
+                    FruitContract.EXTRA_QUANTITY_SOLD);
+            int quantity = extras.getInt(FruitContract.EXTRA_QUANTITY_SOLD);
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Sale requires a positive quantity");
+            }
+            Bundle result = adjustQuantity(extras.getLong(FruitContract.EXTRA_FRUIT_ID),
+                    -quantity, true);
+            recordMetrics(OPERATION_SELL, FRUIT_ID, start, result.isEmpty() ? 0 : 1);
+            return result;
+        }
+        if (FruitContract.METHOD_CONFIGURE_NOTIFICATIONS.equals(method)) {
+            return configureNotifications(extras);
+        }
+        if (FruitContract.METHOD_CHECK_STATS.equals(method)) {
+            return checkStats();
+        }
+        if (FruitContract.METHOD_COMPACT_LEDGER.equals(method)) {
+            long retentionMillis = extras == null ? FruitLedger.DEFAULT_RETENTION_MILLIS : extras
+                    .getLong(FruitContract.EXTRA_RETENTION_MILLIS, FruitLedger
+                            .DEFAULT_RETENTION_MILLIS);
+            Bundle result = new Bundle();
+            result.putInt(FruitContract.EXTRA_MOVEMENTS_REMOVED, compactLedger(retentionMillis));
+            return result;
+        }
+        if (FruitContract.METHOD_CHECK_LEDGER.equals(method)) {
+            return checkLedger();
+        }
+        if (FruitContract.METHOD_IMPORT_CSV.equals(method)) {
+            if (arg == null) {
+                throw new IllegalArgumentException("Import requires the URI of a CSV");
+            }
+            int batchSize = extras == null ? FruitCsvImporter.DEFAULT_BATCH_SIZE : extras.getInt(
+                    FruitContract.EXTRA_BATCH_SIZE, FruitCsvImporter.DEFAULT_BATCH_SIZE);
+            return importCsv(Uri.parse(arg), batchSize);
+        }
+        if (FruitContract.METHOD_GET_METRICS.equals(method)) {
+            if (extras != null && extras.getBoolean(FruitContract.EXTRA_LOG_METRICS)) {
+                StringWriter dump = new StringWriter();
+                mMetrics.dump(new PrintWriter(dump));
+                Log.i(LOG_TAG, "Metrics:\n" + dump);
+            }
+            return mMetrics.toBundle();
+        }
+        if (FruitContract.METHOD_GET_CACHE_STATS.equals(method)) {
+            Bundle result = new Bundle();
+            result.putLong(FruitContract.EXTRA_CACHE_HITS, mCache.getHitCount());
+            result.putLong(FruitContract.EXTRA_CACHE_MISSES, mCache.getMissCount());
+            result.putLong(FruitContract.EXTRA_CACHE_EVICTIONS, mCache.getEvictionCount());
+            return result;
+        }
+        throw new IllegalArgumentException("Unknown method " + method);
+    }
+
+    /**
+     * Check that the extras given to a method contain all the given keys, or throw an
+     * {@link IllegalArgumentException} naming the missing one.
+     */
+    private static void requireExtras(Bundle extras, String operation, String... keys) {
+        for (String key : keys) {
+            if (extras == null || !extras.containsKey(key)) {
+                throw new IllegalArgumentException(operation + " requires " + key);
+            }
+        }
+    }
+
+    /**
+     * Compare the statistics with a full recompute, inside a transaction so no write happens in
+     * between. If they differ, they are rebuilt and their listeners are notified.
+     */
+    private Bundle checkStats() {
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        boolean consistent;
+        database.beginTransaction();
+        try {
+            consistent = FruitDbHelper.checkStats(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        if (!consistent) {
+            Log.w(LOG_TAG, "The statistics were inconsistent and have been rebuilt");
+            notifyChange(FruitEntry.CHANGES_URI);
+        }
+        Bundle result = new Bundle();
+        result.putBoolean(FruitContract.EXTRA_STATS_CONSISTENT, consistent);
+        return result;
+    }
+
+    /**
+     * Fold the movements of the ledger into the snapshots and remove the movements older than
+     * the retention period, in several short transactions.
+     * Return the number of movements removed.
+     */
+    private int compactLedger(long retentionMillis) {
+        if (retentionMillis < 0) {
+            throw new IllegalArgumentException("Invalid retention " + retentionMillis);
+        }
+        long removeBeforeMillis = System.currentTimeMillis() - retentionMillis;
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        long lastMovementId;
+        database.beginTransaction();
+        try {
+            lastMovementId = FruitLedger.takeSnapshots(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // The old movements are removed by chunks, each in its own short transaction, so the
+        // writers don't wait for the whole compaction. The movements appended in between come
+        // after the snapshots and are kept.
+        int removed = 0;
+        int chunk;
+        do {
+            database.beginTransaction();
+            try {
+                chunk = FruitLedger.removeMovements(database, lastMovementId, removeBeforeMillis,
+                        LEDGER_COMPACTION_CHUNK_SIZE);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            removed += chunk;
+        } while (chunk == LEDGER_COMPACTION_CHUNK_SIZE);
+
+        database.beginTransaction();
+        try {
+            FruitLedger.removeDeletedSnapshots(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        // The quantities haven't changed, so the lists of fruits aren't notified.
+        return removed;
+    }
+
+    /**
+     * Replay the ledger inside a transaction, and return the IDs of the fruits whose quantity
+     * differs from it.
+     */
+    private Bundle checkLedger() {
+        SQLiteDatabase database = mDbHelper.getReadableDatabase();
+        long[] ids;
+        database.beginTransaction();
+        try {
+            ids = FruitLedger.findInconsistentFruits(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        if (ids.length != 0) {
+            Log.w(LOG_TAG, "The quantities of " + ids.length + " fruits differ from the ledger");
+        }
+        Bundle result = new Bundle();
+        result.putLongArray(FruitContract.EXTRA_INCONSISTENT_FRUIT_IDS, ids);
+        return result;
+    }
+
+    /**
+     * Import the fruits of a CSV file, one transaction per batch of fruits. The listeners are
+     * notified once at the end.
+     */
+    private Bundle importCsv(Uri source, int batchSize) {
+        final ArrayList<String> rejectedRows = new ArrayList<>();
+        FruitCsvImporter importer = new FruitCsvImporter(mDbHelper.getWritableDatabase(),
+                batchSize);
+        boolean complete = false;
+        Reader reader = null;
+        try {
+            InputStream stream = getContext().getContentResolver().openInputStream(source);
+            if (stream == null) {
+                throw new FileNotFoundException("Cannot open " + source);
+            }
+            reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+            importer.importFrom(reader, new FruitCsvImporter.ErrorListener() {
+                @Override
+                public void onRowRejected(long lineNumber, String message) {
+                    if (rejectedRows.size() < MAX_REPORTED_REJECTIONS) {
+                        rejectedRows.add(lineNumber + ": " + message);
+                    }
+                }
+            });
+            complete = true;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to import " + source, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Failed to close " + source, e);
+                }
+            }
+        }
+
+        if (importer.getRowsImported() != 0) {
+            notifyChange(FruitEntry.CHANGES_URI);
+        }
+        Bundle result = new Bundle();
+        result.putLong(FruitContract.EXTRA_ROWS_IMPORTED, importer.getRowsImported());
+        result.putLong(FruitContract.EXTRA_ROWS_REJECTED, importer.getRowsRejected());
+        result.putStringArray(FruitContract.EXTRA_REJECTED_ROWS, rejectedRows.toArray(new
+                String[rejectedRows.size()]));
+        result.putBoolean(FruitContract.EXTRA_IMPORT_COMPLETE, complete);
+        return result;
+    }
+
+    /**
+     * Change the notification window if the extras have a new one, then return the current
+     * window and the number of notifications saved by the dispatcher.
+     */
+    private Bundle configureNotifications(Bundle extras) {
+        if (extras != null && extras.containsKey(FruitContract
+                .EXTRA_NOTIFICATION_WINDOW_MILLIS)) {
+            mNotificationDispatcher.setWindowMillis(extras.getLong(FruitContract
+                    .EXTRA_NOTIFICATION_WINDOW_MILLIS));
+        }
+        Bundle result = new Bundle();
+        result.putLong(FruitContract.EXTRA_NOTIFICATION_WINDOW_MILLIS, mNotificationDispatcher
+                .getWindowMillis());
+        result.putLong(FruitContract.EXTRA_NOTIFICATIONS_SAVED, mNotificationDispatcher
+                .getSavedCount());
+        return result;
+    }
+
+    /**
+     * Add a delta to the quantity of a fruit with a single UPDATE statement, so two concurrent
+     * changes can't overwrite each other. The quantity is not read before the write.
+     * If recordSale is true, the change is a sale of -delta kilograms and is recorded in the same
+     * transaction.
+     * Return a bundle with the new quantity, or an empty bundle if no row has been updated (the
+     * fruit doesn't exist or its quantity would become negative).
+     */
+    private Bundle adjustQuantity(long id, int delta, boolean recordSale) {
+        Bundle result = new Bundle();
+        boolean inBatch = mPendingNotifications.get() != null;
+        boolean lowStockQueued = false;
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        database.beginTransaction();
+        SQLiteStatement update = database.compileStatement(SQL_ADJUST_QUANTITY);
+        try {
+            update.bindLong(1, delta);
+            update.bindLong(2, id);
+            if (update.executeUpdateDelete() != 0) {
+                // Read back the new value inside the same transaction, with the threshold: the
+                // trigger has queued an alert if the change crossed it, there is no need to
+                // look at the queue.
+                int newQuantity;
+                int reorderThreshold;
+                Cursor cursor = database.rawQuery(SQL_SELECT_QUANTITY, new String[]{String
+                        .valueOf(id)});
+                try {
+                    cursor.moveToFirst();
+                    newQuantity = cursor.getInt(0);
+                    reorderThreshold = cursor.getInt(1);
+                } finally {
+                    cursor.close();
+                }
+                lowStockQueued = newQuantity <= reorderThreshold
+                        && newQuantity - delta > reorderThreshold;
+                result.putInt(FruitContract.EXTRA_NEW_QUANTITY, newQuantity);
+                if (recordSale) {
+                    database.execSQL(SQL_INSERT_SALE, new Object[]{-delta, id, System
+                            .currentTimeMillis()});
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            update.close();
+            database.endTransaction();
+        }
+
+        if (result.containsKey(FruitContract.EXTRA_NEW_QUANTITY)) {
+            if (!inBatch) {
+                // The cached row is only dropped once the change is committed: a reader that
+                // missed the cache and read the row before the commit can't keep it, as the
+                // version of the cache changes. Dropping it, unlike updating it, stays right
+                // when two writes of the fruit reach the cache in another order than their
+                // commits.
+                mCache.remove(id);
+                if (lowStockQueued) {
+                    mLowStockWorker.wakeUp();
+                }
+            }
+            notifyFruitsChanged(new long[]{id});
+        }
+        return result;
+    }
+
+    /**
+     * Apply a batch of insert, update and delete operations inside a single transaction.
+     * The change notifications are collected while the batch runs and sent once per distinct URI
+     * after the transaction has been committed. If any operation fails, nothing is written and
+     * nothing is notified.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        long start = System.nanoTime();
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+        Set<Uri> pendingNotifications = new LinkedHashSet<>();
+        mPendingNotifications.set(pendingNotifications);
+        ContentProviderResult[] results;
+        database.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+            mPendingNotifications.remove();
+        }
+
+        // The cache wasn't written by the batch and the low stock worker wasn't woken up:
+        // remove the fruits it has changed, and wake the worker up if there are alerts.
+        boolean fruitsChanged = false;
+        for (Uri uri : pendingNotifications) {
+            if (sUriMatcher.match(uri) == FRUIT_ID) {
+                mCache.remove(ContentUris.parseId(uri));
+                fruitsChanged = true;
+            }
+        }
+        if (fruitsChanged && DatabaseUtils.longForQuery(database, SQL_HAS_LOW_STOCK_ALERTS,
+                null) != 0) {
+            mLowStockWorker.wakeUp();
+        }
+
+        // The batch has been committed, notify each URI that has changed once.
+        for (Uri uri : pendingNotifications) {
+            notifyChange(uri);
+        }
+        // Each operation of the batch is also counted on its own.
+        recordMetrics(OPERATION_APPLY_BATCH, FRUITS, start, results.length);
+        return results;
+    }
+
+    /**
+     * Notify the listeners of each of the given fruits that it has changed, then notify once the
+     * listeners of the whole table through {@link FruitEntry#CHANGES_URI}.
+     */
+    private void notifyFruitsChanged(long[] ids) {
+        for (long id : ids) {
+            notifyChange(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, id));
+        }
+        notifyChange(FruitEntry.CHANGES_URI);
+    }
+
+    /**
+     * Notify all listeners that the data at the given URI has changed.
+     * If a batch is running on the current thread, the notification is delayed until the batch
+     * is committed. The notification is then coalesced with the other changes of the same URI by
+     * the {@link NotificationDispatcher}.
+     */
+    private void notifyChange(Uri uri) {
+        Set<Uri> pendingNotifications = mPendingNotifications.get();
+        if (pendingNotifications != null) {
+            pendingNotifications.add(uri);
+            return;
+        }
+        mNotificationDispatcher.notifyChange(uri);
+    }
+
+    /**
+     * Record an operation that started at the given time (System.nanoTime()) in the metrics.
+     */
+    private void recordMetrics(int operation, int match, long start, long rows) {
+        mMetrics.record(operation, match - FRUITS, System.nanoTime() - start, rows);
+    }
+
+    /**
+     * Write the metrics of the operations, for "adb shell dumpsys activity provider".
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        mMetrics.dump(writer);
+    }
+
+    /**
+     * Open the CSV export of the fruits. The CSV is written to a pipe by a background thread
+     * while the caller reads the other end, so it is never held in memory or in a file.
+     */
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        if (sUriMatcher.match(uri) != FRUITS_EXPORT) {
+            throw new FileNotFoundException("Cannot open " + uri);
+        }
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("Cannot open " + uri + " in mode " + mode);
+        }
+        return openPipeHelper(uri, FruitEntry.EXPORT_TYPE, null, null, mExportWriter);
+    }
+
     /**
      * Returns the MIME type of data in the content provider
      */
@@ -253,9 +1441,22 @@ public class FruitProvider extends ContentProvider {
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case FRUITS:
+            case FRUITS_SUMMARY:
+            case FRUITS_SEARCH:
                 return FruitEntry.CONTENT_LIST_TYPE;
             case FRUIT_ID:
                 return FruitEntry.CONTENT_ITEM_TYPE;
+            case FRUITS_STATS:
+                return StatsEntry.CONTENT_ITEM_TYPE;
+            case FRUITS_MOVEMENTS:
+                return MovementEntry.CONTENT_LIST_TYPE;
+            case SALES:
+                return SalesEntry.CONTENT_LIST_TYPE;
+            case SALES_HOURLY:
+            case SALES_DAILY:
+                return SalesEntry.ROLLUP_LIST_TYPE;
+            case FRUITS_EXPORT:
+                return FruitEntry.EXPORT_TYPE;
             default:
                 throw new IllegalStateException("Unknown URI " + uri + " with match " + match);
         }
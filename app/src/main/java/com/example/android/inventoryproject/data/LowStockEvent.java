@@ -0,0 +1,22 @@
+package com.example.android.inventoryproject.data;
+
+/**
+ * A fruit whose quantity went from above its reorder threshold to at or below it.
+ */
+public final class LowStockEvent {
+
+    // ID and name of the fruit.
+    public final long fruitId;
+    public final String name;
+
+    // Quantity of the fruit after the write, and its reorder threshold, in kilograms.
+    public final int quantity;
+    public final int reorderThreshold;
+
+    LowStockEvent(long fruitId, String name, int quantity, int reorderThreshold) {
+        this.fruitId = fruitId;
+        this.name = name;
+        this.quantity = quantity;
+        this.reorderThreshold = reorderThreshold;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.android.inventoryproject.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the queue of low stock alerts filled by the database (see {@link FruitDbHelper}) and
+ * hands them to a {@link Listener}, in batches, on a background thread.
+ * The {@link FruitProvider} wakes the worker up after each write that made the database queue
+ * an alert. The wake-ups are coalesced: the queue is read {@link #DELAY_MILLIS} after the first
+ * one, so a burst of sales only reads it once, and a steady flow of sales can't postpone it.
+ * The alerts stay in the queue until the listener has handled them, so they survive the process
+ * being killed.
+ */
+public class LowStockWorker {
+
+    /**
+     * Receives the low stock alerts.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread of the worker with a batch of alerts, in the order they were
+         * raised. If this throws, the alerts are handed again at the next wake-up.
+         */
+        void onLowStock(List<LowStockEvent> events);
+    }
+
+    /**
+     * Implemented by the application to give the provider the {@link Listener} of its alerts, so
+     * the data layer doesn't depend on how they are shown. The provider asks for it in its
+     * onCreate, which the system calls before the onCreate of the application.
+     */
+    public interface ListenerFactory {
+        Listener createLowStockListener();
+    }
+
+    // Column of the queue with the ID of the fruit.
+    static final String COLUMN_FRUIT_ID = "FruitId";
+
+    // Maximum number of alerts handed to the listener at once.
+    static final int BATCH_SIZE = 50;
+
+    // Time between a wake-up and the reading of the queue, in milliseconds.
+    static final long DELAY_MILLIS = 500;
+
+    private static final String LOG_TAG = LowStockWorker.class.getSimpleName();
+
+    // Columns read from the queue.
+    private static final String[] COLUMNS = {FruitEntry._ID, COLUMN_FRUIT_ID,
+            FruitEntry.COLUMN_PRODUCT_NAME, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG,
+            FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD};
+
+    private final SQLiteOpenHelper dbHelper;
+    private final Handler handler;
+    private final Listener listener;
+
+    // Whether the drain is posted and hasn't started yet.
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // Reads the queue once the wake-ups have been coalesced. A wake-up made while the queue is
+    // read schedules another run, as the queue may have been read before its alert.
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            drain();
+        }
+    };
+
+    /**
+     * Constructs a new {@link LowStockWorker}.
+     *
+     * @param dbHelper the helper of the database with the queue
+     * @param looper   the looper of the thread the queue is drained on
+     * @param listener the listener of the alerts
+     */
+    public LowStockWorker(SQLiteOpenHelper dbHelper, Looper looper, Listener listener) {
+        this.dbHelper = dbHelper;
+        this.handler = new Handler(looper);
+        this.listener = listener;
+    }
+
+    /**
+     * Drain the queue soon. Calling this again before the queue is read has no effect.
+     */
+    public void wakeUp() {
+        // The pending run is kept, so the wake-ups can't postpone it forever.
+        if (drainScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(drainRunnable, DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Hand all the alerts of the queue to the listener, by batches of {@link #BATCH_SIZE}, and
+     * remove them from the queue. Must be called on the thread of the worker.
+     */
+    void drain() {
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        while (true) {
+            List<LowStockEvent> events = new ArrayList<>(BATCH_SIZE);
+            long lastId = 0;
+            Cursor cursor = database.query(FruitEntry.LOW_STOCK_TABLE_NAME, COLUMNS, null, null,
+                    null, null, FruitEntry._ID, String.valueOf(BATCH_SIZE));
+            try {
+                while (cursor.moveToNext()) {
+                    lastId = cursor.getLong(0);
+                    events.add(new LowStockEvent(cursor.getLong(1), cursor.getString(2), cursor
+                            .getInt(3), cursor.getInt(4)));
+                }
+            } finally {
+                cursor.close();
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+
+            try {
+                listener.onLowStock(events);
+            } catch (RuntimeException e) {
+                Log.e(LOG_TAG, "Failed to handle the low stock alerts", e);
+                return;
+            }
+            database.delete(FruitEntry.LOW_STOCK_TABLE_NAME, FruitEntry._ID + "<=?", new
+                    String[]{String.valueOf(lastId)});
+            if (events.size() < BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+}
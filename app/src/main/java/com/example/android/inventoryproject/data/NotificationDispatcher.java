@@ -0,0 +1,127 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the change notifications of the {@link FruitProvider}, coalescing them over a short
+ * window: all the changes of a URI made during the window are sent as a single notification at
+ * the end of the window. This way a burst of taps on a quantity button only reloads the list
+ * once.
+ */
+public class NotificationDispatcher {
+
+    // Default length of the window, in milliseconds.
+    public static final long DEFAULT_WINDOW_MILLIS = 50;
+
+    private final ContentResolver contentResolver;
+
+    // Handler of the thread the delayed notifications are sent from.
+    private final Handler handler;
+
+    // Length of the window, in milliseconds. With a window of 0, the notifications are sent
+    // right away.
+    private volatile long windowMillis = DEFAULT_WINDOW_MILLIS;
+
+    // URIs changed during the current window, in the order of their first change.
+    private final Set<Uri> pendingUris = new LinkedHashSet<>();
+
+    // Number of notifications requested and number of notifications actually sent.
+    private final AtomicLong requestedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+
+    // Sends all the notifications of the current window.
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Constructs a new {@link NotificationDispatcher}.
+     *
+     * @param contentResolver the ContentResolver used to send the notifications
+     * @param looper          the looper of the thread that sends the delayed notifications
+     */
+    public NotificationDispatcher(ContentResolver contentResolver, Looper looper) {
+        this.contentResolver = contentResolver;
+        this.handler = new Handler(looper);
+    }
+
+    /**
+     * Notify the listeners of the given URI that its data has changed, at the end of the current
+     * window.
+     */
+    public void notifyChange(Uri uri) {
+        requestedCount.incrementAndGet();
+        if (windowMillis == 0) {
+            send(uri);
+            return;
+        }
+        synchronized (pendingUris) {
+            // The window starts with its first change.
+            if (pendingUris.isEmpty()) {
+                handler.postDelayed(flushRunnable, windowMillis);
+            }
+            pendingUris.add(uri);
+        }
+    }
+
+    /**
+     * Send all the pending notifications now, without waiting for the end of the window.
+     */
+    public void flush() {
+        ArrayList<Uri> uris;
+        synchronized (pendingUris) {
+            handler.removeCallbacks(flushRunnable);
+            uris = new ArrayList<>(pendingUris);
+            pendingUris.clear();
+        }
+        for (Uri uri : uris) {
+            send(uri);
+        }
+    }
+
+    private void send(Uri uri) {
+        sentCount.incrementAndGet();
+        contentResolver.notifyChange(uri, null);
+    }
+
+    /**
+     * Return the length of the window, in milliseconds.
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Change the length of the window. The pending notifications are sent first.
+     *
+     * @param windowMillis the new length in milliseconds, 0 to send the notifications right away
+     */
+    public void setWindowMillis(long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("Invalid notification window " + windowMillis);
+        }
+        flush();
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Return the number of notifications that have not been sent because they were coalesced
+     * with another notification of the same window.
+     */
+    public long getSavedCount() {
+        synchronized (pendingUris) {
+            return requestedCount.get() - sentCount.get() - pendingUris.size();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.android.inventoryproject.data;
+
+import android.os.Bundle;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the operations of a provider, per operation (query, insert...) and per target
+ * (the kind of URI): the number of operations, their total time, the number of rows returned
+ * or written, and a histogram of their times.
+ * Recording never locks: the counters are striped over several arrays, and each thread adds
+ * to the stripe picked by its ID, so the threads of the provider seldom write to the same
+ * counters (LongAdder is not available on every supported version). The stripes are summed
+ * when the counters are read, so a read concurrent with writes may miss the latest operations.
+ */
+final class ProviderMetrics {
+
+    // Number of buckets of the histograms. Bucket i counts the times below 2^i microseconds
+    // (and above the previous bucket), the last one counts all the longer times.
+    static final int BUCKET_COUNT = 24;
+
+    // Number of stripes, a power of 2.
+    private static final int STRIPE_COUNT = 8;
+
+    // Counters of each (operation, target) slot, followed by its histogram.
+    private static final int COUNT = 0;
+    private static final int TOTAL_NANOS = 1;
+    private static final int ROWS = 2;
+    private static final int FIRST_BUCKET = 3;
+    private static final int SLOT_LENGTH = FIRST_BUCKET + BUCKET_COUNT;
+
+    // Counters per cache line (64 bytes): the stripes are rounded up to whole cache lines, so
+    // two stripes never share one.
+    private static final int LONGS_PER_CACHE_LINE = 8;
+
+    private final String[] operations;
+    private final String[] targets;
+    private final int stripeLength;
+    private final AtomicLongArray counters;
+
+    /**
+     * Constructs a new {@link ProviderMetrics}.
+     *
+     * @param operations the names of the operations, indexed by operation
+     * @param targets    the names of the targets, indexed by target
+     */
+    ProviderMetrics(String[] operations, String[] targets) {
+        this.operations = operations.clone();
+        this.targets = targets.clone();
+        int length = operations.length * targets.length * SLOT_LENGTH;
+        stripeLength = (length + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE
+                * LONGS_PER_CACHE_LINE;
+        counters = new AtomicLongArray(stripeLength * STRIPE_COUNT);
+    }
+
+    /**
+     * Record a completed operation.
+     *
+     * @param operation the index of the operation
+     * @param target    the index of the target
+     * @param nanos     the time the operation took
+     * @param rows      the number of rows returned or written
+     */
+    void record(int operation, int target, long nanos, long rows) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+        int slot = stripe * stripeLength + (operation * targets.length + target) * SLOT_LENGTH;
+        counters.incrementAndGet(slot + COUNT);
+        counters.addAndGet(slot + TOTAL_NANOS, nanos);
+        counters.addAndGet(slot + ROWS, rows);
+        counters.incrementAndGet(slot + FIRST_BUCKET + bucketOf(nanos));
+    }
+
+    /**
+     * Return the index of the histogram bucket of a time.
+     */
+    static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Return the upper bound of a histogram bucket, in nanoseconds (the last bucket has none,
+     * its lower bound is returned).
+     */
+    static long bucketLimitNanos(int bucket) {
+        return (1L << Math.min(bucket, BUCKET_COUNT - 2)) * 1000;
+    }
+
+    /**
+     * Return the sums over the stripes of the counters of a slot.
+     */
+    private long[] sumSlot(int operation, int target) {
+        long[] sums = new long[SLOT_LENGTH];
+        int offset = (operation * targets.length + target) * SLOT_LENGTH;
+        for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+            int slot = stripe * stripeLength + offset;
+            for (int i = 0; i < SLOT_LENGTH; i++) {
+                sums[i] += counters.get(slot + i);
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Return the estimate of a percentile of the times of a slot from its histogram: the upper
+     * bound of the bucket it falls in.
+     */
+    private static long percentileNanos(long[] sums, int percent) {
+        long rank = (sums[COUNT] * percent + 99) / 100;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += sums[FIRST_BUCKET + bucket];
+            if (seen >= rank) {
+                return bucketLimitNanos(bucket);
+            }
+        }
+        return bucketLimitNanos(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Return the counters of the slots with at least one operation, as a bundle per slot keyed
+     * by "operation target" (see {@link FruitContract#METHOD_GET_METRICS}).
+     */
+    Bundle toBundle() {
+        Bundle result = new Bundle();
+        for (int operation = 0; operation < operations.length; operation++) {
+            for (int target = 0; target < targets.length; target++) {
+                long[] sums = sumSlot(operation, target);
+                if (sums[COUNT] == 0) {
+                    continue;
+                }
+                Bundle slot = new Bundle();
+                slot.putLong(FruitContract.EXTRA_METRIC_COUNT, sums[COUNT]);
+                slot.putLong(FruitContract.EXTRA_METRIC_TOTAL_NANOS, sums[TOTAL_NANOS]);
+                slot.putLong(FruitContract.EXTRA_METRIC_ROWS, sums[ROWS]);
+                slot.putLong(FruitContract.EXTRA_METRIC_P50_NANOS, percentileNanos(sums, 50));
+                slot.putLong(FruitContract.EXTRA_METRIC_P95_NANOS, percentileNanos(sums, 95));
+                slot.putLong(FruitContract.EXTRA_METRIC_P99_NANOS, percentileNanos(sums, 99));
+                long[] histogram = new long[BUCKET_COUNT];
+                System.arraycopy(sums, FIRST_BUCKET, histogram, 0, BUCKET_COUNT);
+                slot.putLongArray(FruitContract.EXTRA_METRIC_HISTOGRAM, histogram);
+                result.putBundle(operations[operation] + " " + targets[target], slot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write a line per slot with at least one operation.
+     */
+    void dump(PrintWriter writer) {
+        for (int operation = 0; operation < operations.length; operation++) {
+            for (int target = 0; target < targets.length; target++) {
+                long[] sums = sumSlot(operation, target);
+                if (sums[COUNT] == 0) {
+                    continue;
+                }
+                writer.println(String.format("%s %s: %d ops, %d rows, mean %.1f us, p50 < %d us, "
+                                + "p95 < %d us, p99 < %d us", operations[operation],
+                        targets[target], sums[COUNT], sums[ROWS], sums[TOTAL_NANOS] / 1e3
+                                / sums[COUNT], percentileNanos(sums, 50) / 1000,
+                        percentileNanos(sums, 95) / 1000, percentileNanos(sums, 99) / 1000));
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.android.inventoryproject;
+
+import android.util.SparseIntArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrameTimeStats}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FrameTimeStatsTest {
+
+    @Test
+    public void percentiles_followTheDistribution() {
+        SparseIntArray durations = new SparseIntArray();
+        durations.put(8, 90);
+        durations.put(20, 6);
+        durations.put(50, 4);
+
+        FrameTimeStats stats = new FrameTimeStats(durations);
+
+        assertEquals(100, stats.getFrameCount());
+        assertEquals(10, stats.getJankyFrameCount());
+        assertEquals(8, stats.getPercentileMillis(50));
+        assertEquals(8, stats.getPercentileMillis(90));
+        assertEquals(50, stats.getPercentileMillis(99));
+        assertEquals(20, stats.getPercentileMillis(95));
+    }
+
+    @Test
+    public void noFrames_givesEmptyStats() {
+        FrameTimeStats stats = new FrameTimeStats(null);
+
+        assertEquals(0, stats.getFrameCount());
+        assertEquals(0, stats.getPercentileMillis(95));
+    }
+}
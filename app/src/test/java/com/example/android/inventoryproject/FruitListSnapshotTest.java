@@ -0,0 +1,70 @@
+package com.example.android.inventoryproject;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitListSnapshot}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitListSnapshotTest {
+
+    private Context context;
+    private FruitListSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        snapshot = new FruitListSnapshot(context);
+        snapshot.delete();
+    }
+
+    @Test
+    public void read_returnsTheWrittenFruits() {
+        List<FruitSummary> fruits = Arrays.asList(new FruitSummary(1, "Apple", "3", "10"),
+                new FruitSummary(7, "Kiwi", null, "0"));
+
+        snapshot.write(fruits);
+
+        assertEquals(fruits, new FruitListSnapshot(context).read());
+    }
+
+    @Test
+    public void read_returnsAnEmptyList() {
+        snapshot.write(Collections.<FruitSummary>emptyList());
+
+        assertEquals(Collections.<FruitSummary>emptyList(), snapshot.read());
+    }
+
+    @Test
+    public void read_withoutSnapshot_returnsNull() {
+        assertNull(snapshot.read());
+    }
+
+    @Test
+    public void read_ignoresADamagedFile() throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(context.getCacheDir(),
+                FruitListSnapshot.FILE_NAME));
+        try {
+            out.write(new byte[]{0, 0, 0, 1, 0, 0, 0, 5, 0});
+        } finally {
+            out.close();
+        }
+
+        assertNull(snapshot.read());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.android.inventoryproject.data;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel that only counts the bytes written to it.
+ */
+class CountingChannel implements WritableByteChannel {
+    long bytes;
+
+    @Override
+    public int write(ByteBuffer source) {
+        int count = source.remaining();
+        source.position(source.limit());
+        bytes += count;
+        return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
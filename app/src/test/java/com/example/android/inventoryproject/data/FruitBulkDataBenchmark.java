@@ -0,0 +1,256 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.inventoryproject.benchmark.BenchmarkResults;
+import com.example.android.inventoryproject.benchmark.BenchmarkRunner;
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.MovementEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmarks of the operations that go through a whole table, run with Robolectric on an
+ * on-disk database: the filling of a cursor over all the fruits with the summary and the full
+ * projections, the CSV export and import, and the replay of the ledger before and after its
+ * compaction. Each operation only runs a few times, as a single run takes up to seconds.
+ * The benchmark only runs when -Pbenchmark is given to Gradle.
+ * The sizes are given with -Dbenchmark.sizes=10000,100000,1000000 (10000 and 100000 by
+ * default): the number of fruits read or exported, or of movements replayed. The results are
+ * written to build/benchmark-results/FruitBulkDataBenchmark.csv (or -Dbenchmark.bulkOutput).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitBulkDataBenchmark {
+
+    private static final int[] SIZES = BenchmarkRunner.parseSizes(System.getProperty(
+            "benchmark.sizes"), 10000, 100000);
+
+    private static final File OUTPUT = new File(System.getProperty("benchmark.bulkOutput",
+            "build/benchmark-results/FruitBulkDataBenchmark.csv"));
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    // Number of fruits imported by each run of the import, whatever the size of the table.
+    private static final int IMPORT_ROWS = 10000;
+
+    // Number of fruits the movements of the ledger are spread over.
+    private static final int LEDGER_FRUITS = 1000;
+
+    // Length of the supplier names of the fruits read by the cursors. Long names are the case
+    // where the summary projection saves the most.
+    private static final int SUPPLIER_NAME_LENGTH = 100;
+
+    // Number of fruits inserted at once to fill the table through the provider.
+    private static final int FILL_BATCH_SIZE = 10000;
+
+    private final Context context = RuntimeEnvironment.application;
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+        for (int size : SIZES) {
+            measureCursorFill(runner, size);
+            measureCsv(runner, size);
+            measureLedger(runner, size);
+        }
+
+        BenchmarkResults.write(OUTPUT, runner.getResults());
+        assertEquals(SIZES.length * 6, runner.getResults().size());
+    }
+
+    /**
+     * Measure the query of all the fruits through the provider, up to the cursor holding all
+     * the rows in its window, with the summary projection of the list and with every column.
+     */
+    private void measureCursorFill(BenchmarkRunner runner, final int size) throws Exception {
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        final FruitProvider provider = Robolectric.setupContentProvider(FruitProvider.class,
+                FruitContract.CONTENT_AUTHORITY);
+        try {
+            char[] supplierName = new char[SUPPLIER_NAME_LENGTH];
+            Arrays.fill(supplierName, 's');
+            ContentValues[] fruits = new ContentValues[Math.min(size, FILL_BATCH_SIZE)];
+            for (int inserted = 0; inserted < size; inserted += fruits.length) {
+                int count = Math.min(fruits.length, size - inserted);
+                ContentValues[] batch = count == fruits.length ? fruits
+                        : new ContentValues[count];
+                for (int i = 0; i < count; i++) {
+                    ContentValues values = new ContentValues();
+                    values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Fruit " + (inserted + i));
+                    values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, i % 50);
+                    values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, i % 20);
+                    values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, new String(
+                            supplierName));
+                    values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "555-0100");
+                    batch[i] = values;
+                }
+                provider.bulkInsert(FruitEntry.CONTENT_URI, batch);
+            }
+            runner.measure("cursorFillSummary", size, new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) {
+                    readAll(provider.query(FruitEntry.SUMMARY_URI, FruitEntry
+                            .SUMMARY_PROJECTION, null, null, null), size);
+                }
+            });
+            runner.measure("cursorFillFullProjection", size, new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) {
+                    readAll(provider.query(FruitEntry.CONTENT_URI, null, null, null, null),
+                            size);
+                }
+            });
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    private void measureCsv(BenchmarkRunner runner, int size) throws Exception {
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        FruitDbHelper dbHelper = new FruitDbHelper(context);
+        final SQLiteDatabase database = dbHelper.getWritableDatabase();
+        try {
+            fill(database, size);
+            runner.measure("csvExport", size, new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) throws Exception {
+                    new FruitCsvExporter(database, FruitCsvExporter.DEFAULT_WINDOW_SIZE).export(
+                            new CountingChannel(), null);
+                }
+            });
+            // Each run adds its fruits to the table, which grows a little.
+            runner.measure("csvImport" + IMPORT_ROWS, size, new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) throws Exception {
+                    new FruitCsvImporter(database, FruitCsvImporter.DEFAULT_BATCH_SIZE)
+                            .importFrom(new BufferedReader(new GeneratedCsvReader(IMPORT_ROWS)),
+                                    null);
+                }
+            });
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Measure the replay of the given number of movements, then of the snapshots left by the
+     * compaction of the ledger.
+     */
+    private void measureLedger(BenchmarkRunner runner, int movements) throws Exception {
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        FruitDbHelper dbHelper = new FruitDbHelper(context);
+        final SQLiteDatabase database = dbHelper.getWritableDatabase();
+        try {
+            appendRandomMovements(database, movements);
+            BenchmarkRunner.Operation replay = new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) {
+                    assertEquals(0, FruitLedger.findInconsistentFruits(database).length);
+                }
+            };
+            runner.measure("ledgerReplay", movements, replay);
+            FruitLedger.compact(database, Long.MAX_VALUE);
+            runner.measure("ledgerReplayAfterCompaction", movements, replay);
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Read every column of every row, as a list would, then close the cursor.
+     */
+    private static void readAll(Cursor cursor, int expectedRows) {
+        try {
+            assertEquals(expectedRows, cursor.getCount());
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    cursor.getString(i);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void fill(SQLiteDatabase database, int size) {
+        database.beginTransaction();
+        SQLiteStatement insert = database.compileStatement("INSERT INTO " + FruitEntry.TABLE_NAME
+                + " (" + FruitEntry.COLUMN_PRODUCT_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG + ", "
+                + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                + ") VALUES (?, ?, ?, ?, '555-0100')");
+        try {
+            for (int i = 0; i < size; i++) {
+                insert.bindString(1, "Fruit " + i);
+                insert.bindLong(2, i % 50);
+                insert.bindLong(3, i % 20);
+                insert.bindString(4, "Supplier " + i % 7);
+                insert.executeInsert();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            insert.close();
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Append random movements directly to the ledger, then give the fruits their final
+     * quantities without appending more movements.
+     */
+    private static void appendRandomMovements(SQLiteDatabase database, int movements) {
+        Random random = new Random(42);
+        long[] quantities = new long[LEDGER_FRUITS + 1];
+        database.beginTransaction();
+        SQLiteStatement append = database.compileStatement("INSERT INTO "
+                + MovementEntry.TABLE_NAME + " (" + MovementEntry.COLUMN_FRUIT_ID + ", "
+                + MovementEntry.COLUMN_DELTA + ", " + MovementEntry.COLUMN_TIME
+                + ") VALUES (?, ?, 0)");
+        try {
+            for (int id = 1; id <= LEDGER_FRUITS; id++) {
+                database.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " (" + FruitEntry._ID
+                        + ", " + FruitEntry.COLUMN_PRODUCT_NAME + ", "
+                        + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+                        + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                        + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                        + ") VALUES (?, 'Fruit', 0, 'Orchard', '555-0100')", new Object[]{id});
+            }
+            for (int i = 0; i < movements; i++) {
+                int id = 1 + random.nextInt(LEDGER_FRUITS);
+                int delta = random.nextInt(21) - 10;
+                append.bindLong(1, id);
+                append.bindLong(2, delta);
+                append.executeInsert();
+                quantities[id] += delta;
+            }
+            database.execSQL("DROP TRIGGER " + MovementEntry.TABLE_NAME + "_update");
+            for (int id = 1; id <= LEDGER_FRUITS; id++) {
+                database.execSQL("UPDATE " + FruitEntry.TABLE_NAME + " SET "
+                        + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " = ? WHERE "
+                        + FruitEntry._ID + " = ?", new Object[]{quantities[id], id});
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            append.close();
+            database.endTransaction();
+        }
+    }
+}
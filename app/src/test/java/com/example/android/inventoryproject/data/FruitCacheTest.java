@@ -0,0 +1,89 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitCache}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitCacheTest {
+
+    @Test
+    public void insert_evictsTheLeastRecentlyUsedRow() {
+        FruitCache cache = new FruitCache(2);
+        cache.insert(1, createFruit("Apple"));
+        cache.insert(2, createFruit("Banana"));
+        // Use the first fruit, so the second one is the least recently used.
+        assertNotNull(cache.get(1));
+
+        cache.insert(3, createFruit("Cherry"));
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void insert_usesTableDefaults() {
+        FruitCache cache = new FruitCache(FruitCache.DEFAULT_MAX_ROWS);
+        ContentValues values = createFruit("Apple");
+        values.remove(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
+        cache.insert(1, values);
+
+        Cursor cursor = FruitCache.toCursor(cache.get(1), null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals(1, cursor.getLong(cursor.getColumnIndex(FruitEntry._ID)));
+        assertEquals(1, cursor.getInt(cursor.getColumnIndex(FruitEntry
+                .COLUMN_PRODUCT_QUANTITY_IN_KG)));
+        assertEquals(3, cursor.getInt(cursor.getColumnIndex(FruitEntry
+                .COLUMN_PRODUCT_PRICE_PER_KG)));
+    }
+
+    @Test
+    public void insert_skipsRowsItCannotMirror() {
+        FruitCache cache = new FruitCache(FruitCache.DEFAULT_MAX_ROWS);
+        ContentValues values = createFruit("Apple");
+        values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, "4");
+
+        cache.insert(1, values);
+
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void putIfUnchanged_ignoresRowsReadBeforeAWrite() {
+        FruitCache cache = new FruitCache(FruitCache.DEFAULT_MAX_ROWS);
+        long version = cache.getVersion();
+        cache.remove(1);
+
+        ContentValues row = createFruit("Apple");
+        row.put(FruitEntry._ID, 1L);
+        cache.putIfUnchanged(1, row, version);
+        assertNull(cache.get(1));
+
+        cache.putIfUnchanged(1, row, cache.getVersion());
+        assertNotNull(cache.get(1));
+    }
+
+    private static ContentValues createFruit(String name) {
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, 3);
+        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, 10);
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, "Supplier");
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "0123456789");
+        return values;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitCsvExporter}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitCsvExporterTest {
+
+    // Number of fruits exported by the memory test. It can be raised to millions with
+    // -Dexport.rows=...
+    private static final int EXPORT_ROWS = Integer.getInteger("export.rows", 200000);
+
+    // Heap that the export may retain whatever the number of fruits, in bytes.
+    private static final long MAX_RETAINED_BYTES = 8 * 1024 * 1024;
+
+    private SQLiteDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        database = new FruitDbHelper(context).getWritableDatabase();
+    }
+
+    @Test
+    public void export_writesAHeaderAndQuotesTheFields() throws IOException {
+        insertFruit("Apple", "Orchard");
+        insertFruit("Pear, \"Conference\"", "Line 1\nLine 2");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long rows = new FruitCsvExporter(database, FruitCsvExporter.DEFAULT_WINDOW_SIZE).export(
+                Channels.newChannel(output), null);
+
+        assertEquals(2, rows);
+        assertEquals("_id,Name,Price,Quantity,SupplierName,SupplierPhoneNumber,ReorderThreshold"
+                + "\r\n1,Apple,3,4,Orchard,555-0100,0\r\n"
+                + "2,\"Pear, \"\"Conference\"\"\",3,4,\"Line 1\nLine 2\",555-0100,0\r\n", output
+                .toString("UTF-8"));
+    }
+
+    @Test
+    public void export_reportsTheProgressOfEachWindow() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            insertFruit("Fruit " + i, "Orchard");
+        }
+        final List<Long> progress = new ArrayList<>();
+
+        new FruitCsvExporter(database, 2).export(Channels.newChannel(new
+                ByteArrayOutputStream()), new FruitCsvExporter.ProgressListener() {
+            @Override
+            public void onProgress(long rowsWritten, long totalRows) {
+                assertEquals(5, totalRows);
+                progress.add(rowsWritten);
+            }
+        });
+
+        assertEquals(3, progress.size());
+        assertEquals(Long.valueOf(5), progress.get(2));
+    }
+
+    @Test
+    public void export_keepsTheMemoryBounded() throws IOException {
+        database.beginTransaction();
+        SQLiteStatement insert = database.compileStatement("INSERT INTO " + FruitEntry.TABLE_NAME
+                + " (" + FruitEntry.COLUMN_PRODUCT_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                + ") VALUES (?, 'Orchard', '555-0100')");
+        try {
+            for (int i = 0; i < EXPORT_ROWS; i++) {
+                insert.bindString(1, "Fruit " + i);
+                insert.executeInsert();
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            insert.close();
+            database.endTransaction();
+        }
+
+        final Runtime runtime = Runtime.getRuntime();
+        final long baseline = usedHeap(runtime);
+        final long[] maxRetained = new long[1];
+        long rows = new FruitCsvExporter(database, FruitCsvExporter.DEFAULT_WINDOW_SIZE).export(
+                new CountingChannel(), new FruitCsvExporter.ProgressListener() {
+                    private int windows;
+
+                    @Override
+                    public void onProgress(long rowsWritten, long totalRows) {
+                        // Collecting after every window would take longer than the export.
+                        if (windows++ % 50 == 0) {
+                            maxRetained[0] = Math.max(maxRetained[0], usedHeap(runtime)
+                                    - baseline);
+                        }
+                    }
+                });
+
+        assertEquals(EXPORT_ROWS, rows);
+        assertTrue("Retained " + maxRetained[0] + " bytes", maxRetained[0] < MAX_RETAINED_BYTES);
+    }
+
+    private static long usedHeap(Runtime runtime) {
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void insertFruit(String name, String supplierName) {
+        database.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " ("
+                + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG
+                + ", " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                + ") VALUES (?, 3, 4, ?, '555-0100')", new Object[]{name, supplierName});
+    }
+}
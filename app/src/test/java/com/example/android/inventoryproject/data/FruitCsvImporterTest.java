@@ -0,0 +1,162 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitCsvImporter}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitCsvImporterTest {
+
+    private SQLiteDatabase database;
+
+    // Rows skipped by the last import, as "line: reason".
+    private final List<String> rejectedRows = new ArrayList<>();
+
+    private final FruitCsvImporter.ErrorListener errorListener = new FruitCsvImporter
+            .ErrorListener() {
+        @Override
+        public void onRowRejected(long lineNumber, String message) {
+            rejectedRows.add(lineNumber + ": " + message);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        database = new FruitDbHelper(context).getWritableDatabase();
+    }
+
+    @Test
+    public void importFrom_skipsTheInvalidRows() throws IOException {
+        FruitCsvImporter importer = new FruitCsvImporter(database, 2);
+
+        importer.importFrom(new StringReader("Name,Price,Quantity,SupplierName,"
+                + "SupplierPhoneNumber\r\n"
+                + "Apple,3,4,Orchard,555-0100\r\n"
+                + ",3,4,Orchard,555-0100\r\n"
+                + "Pear,-1,4,Orchard,555-0100\r\n"
+                + "\"Kiwi, \"\"gold\"\"\",,x,Orchard,555-0100\r\n"
+                + "Lemon,3\r\n"
+                + "\r\n"
+                + "\"Plum\nred\",,,Orchard,555-0100\r\n"
+                + "Mango,3,4,Orchard,555-0100"), errorListener);
+
+        assertEquals(3, importer.getRowsImported());
+        assertEquals(4, importer.getRowsRejected());
+        assertEquals("3: Product requires a name", rejectedRows.get(0));
+        assertEquals("4: Product requires a valid price", rejectedRows.get(1));
+        assertEquals("5: Invalid Quantity x", rejectedRows.get(2));
+        assertEquals("6: Expected 5 fields but found 2", rejectedRows.get(3));
+
+        Cursor cursor = database.query(FruitEntry.TABLE_NAME, new String[]{FruitEntry
+                .COLUMN_PRODUCT_NAME, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG}, null, null, null,
+                null, FruitEntry._ID);
+        try {
+            assertEquals(3, cursor.getCount());
+            assertTrue(cursor.moveToPosition(1));
+            assertEquals("Plum\nred", cursor.getString(0));
+            // The empty quantity takes the default of the table.
+            assertEquals(1, cursor.getInt(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void importFrom_readsAnExport() throws IOException {
+        database.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " ("
+                + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME
+                + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER + ", "
+                + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD
+                + ") VALUES ('Pear, \"Conference\"', 'Orchard', '555-0100', 2)");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new FruitCsvExporter(database, FruitCsvExporter.DEFAULT_WINDOW_SIZE).export(Channels
+                .newChannel(output), null);
+
+        new FruitCsvImporter(database, FruitCsvImporter.DEFAULT_BATCH_SIZE).importFrom(new
+                StringReader(output.toString("UTF-8")), errorListener);
+
+        assertTrue(rejectedRows.isEmpty());
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, FruitEntry.TABLE_NAME,
+                FruitEntry.COLUMN_PRODUCT_NAME + " = 'Pear, \"Conference\"' AND "
+                        + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + " = 2 AND "
+                        + FruitEntry._ID + " = 2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void importFrom_rejectsAnUnknownColumn() throws IOException {
+        new FruitCsvImporter(database, FruitCsvImporter.DEFAULT_BATCH_SIZE).importFrom(new
+                StringReader("Name,Color\r\nApple,red\r\n"), errorListener);
+    }
+
+    @Test
+    public void importFrom_onlyCountsTheCommittedBatches() {
+        StringBuilder csv = new StringBuilder("Name,Price,Quantity,SupplierName,"
+                + "SupplierPhoneNumber\r\n");
+        for (int i = 0; i < 150; i++) {
+            csv.append("Fruit ").append(i).append(",3,4,Orchard,555-0100\r\n");
+        }
+        final StringReader input = new StringReader(csv.toString());
+        // The connection is lost in the middle of the second batch.
+        Reader reader = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int count = input.read(buffer, offset, length);
+                if (count == -1) {
+                    throw new IOException("Connection lost");
+                }
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        FruitCsvImporter importer = new FruitCsvImporter(database, 100);
+
+        try {
+            importer.importFrom(reader, errorListener);
+            fail("The import should have failed");
+        } catch (IOException expected) {
+            // The second batch is rolled back.
+        }
+
+        assertEquals(100, importer.getRowsImported());
+        assertEquals(100, DatabaseUtils.queryNumEntries(database, FruitEntry.TABLE_NAME));
+    }
+
+    @Test
+    public void importFrom_commitsEveryBatch() throws IOException {
+        FruitCsvImporter importer = new FruitCsvImporter(database, 100);
+
+        importer.importFrom(new BufferedReader(new GeneratedCsvReader(250)), errorListener);
+
+        assertEquals(250, importer.getRowsImported());
+        assertEquals(250, DatabaseUtils.queryNumEntries(database, FruitEntry.TABLE_NAME));
+        assertFalse(database.inTransaction());
+    }
+}
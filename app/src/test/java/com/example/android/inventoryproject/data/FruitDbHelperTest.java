@@ -0,0 +1,126 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.StatsEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the schema and the migrations of {@link FruitDbHelper}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitDbHelperTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void upgradeFromFirstVersion_keepsTheFruits() {
+        // Create the database as it was in its first version, with a fruit.
+        SQLiteDatabase oldDatabase = context.openOrCreateDatabase(FruitDbHelper.DATABASE_NAME,
+                Context.MODE_PRIVATE, null);
+        oldDatabase.execSQL(FruitDbHelper.SQL_CREATE_ENTRIES);
+        oldDatabase.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " (" + FruitEntry
+                .COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                + ") VALUES ('Apple', 'Orchard', '555-0100')");
+        oldDatabase.setVersion(1);
+        oldDatabase.close();
+
+        SQLiteDatabase database = new FruitDbHelper(context).getReadableDatabase();
+
+        assertEquals(FruitDbHelper.DATABASE_VERSION, database.getVersion());
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, FruitEntry.TABLE_NAME));
+        assertUsesIndex(database, FruitEntry.COLUMN_PRODUCT_NAME);
+    }
+
+    @Test
+    public void lookups_useTheIndexes() {
+        SQLiteDatabase database = new FruitDbHelper(context).getReadableDatabase();
+
+        assertUsesIndex(database, FruitEntry.COLUMN_PRODUCT_NAME);
+        assertUsesIndex(database, FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME);
+        assertUsesIndex(database, FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
+    }
+
+    @Test
+    public void upgradeFromFirstVersion_computesTheStats() {
+        SQLiteDatabase oldDatabase = context.openOrCreateDatabase(FruitDbHelper.DATABASE_NAME,
+                Context.MODE_PRIVATE, null);
+        oldDatabase.execSQL(FruitDbHelper.SQL_CREATE_ENTRIES);
+        oldDatabase.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " VALUES (1, 'Apple', 3, "
+                + "10, 'Orchard', '555-0100'), (2, 'Banana', 2, 0, 'Farm', '555-0101')");
+        oldDatabase.setVersion(1);
+        oldDatabase.close();
+
+        SQLiteDatabase database = new FruitDbHelper(context).getReadableDatabase();
+
+        assertEquals("30|10|1", DatabaseUtils.stringForQuery(database, "SELECT "
+                + StatsEntry.COLUMN_TOTAL_STOCK_VALUE + " || '|' || "
+                + StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG + " || '|' || "
+                + StatsEntry.COLUMN_OUT_OF_STOCK_COUNT + " FROM " + StatsEntry.TABLE_NAME, null));
+    }
+
+    @Test
+    public void checkStats_rebuildsInconsistentStats() {
+        SQLiteDatabase database = new FruitDbHelper(context).getWritableDatabase();
+        database.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " VALUES (1, 'Apple', 3, 10, "
+                + "'Orchard', '555-0100')");
+        assertTrue(FruitDbHelper.checkStats(database));
+
+        database.execSQL("UPDATE " + StatsEntry.TABLE_NAME + " SET "
+                + StatsEntry.COLUMN_TOTAL_QUANTITY_IN_KG + " = 0");
+
+        assertFalse(FruitDbHelper.checkStats(database));
+        assertTrue(FruitDbHelper.checkStats(database));
+    }
+
+    @Test
+    public void onConfigure_appliesTheSettings() {
+        SQLiteDatabase database = new FruitDbHelper(context, new DatabaseSettings(true, "FULL",
+                1024, 500)).getReadableDatabase();
+
+        assertEquals("wal", DatabaseUtils.stringForQuery(database, "PRAGMA journal_mode", null));
+        assertEquals(2, DatabaseUtils.longForQuery(database, "PRAGMA synchronous", null));
+        assertEquals(-1024, DatabaseUtils.longForQuery(database, "PRAGMA cache_size", null));
+        assertEquals(500, DatabaseUtils.longForQuery(database, "PRAGMA wal_autocheckpoint",
+                null));
+    }
+
+    /**
+     * Check with EXPLAIN QUERY PLAN that a lookup on the given column uses an index instead of
+     * scanning the table.
+     */
+    private static void assertUsesIndex(SQLiteDatabase database, String column) {
+        Cursor cursor = database.rawQuery("EXPLAIN QUERY PLAN SELECT " + FruitEntry._ID
+                + " FROM " + FruitEntry.TABLE_NAME + " WHERE " + column + " = ?", new
+                String[]{"0"});
+        try {
+            StringBuilder plan = new StringBuilder();
+            int detailColumnIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailColumnIndex)).append('\n');
+            }
+            assertTrue("Query plan for " + column + ": " + plan, plan.indexOf("INDEX "
+                    + FruitEntry.TABLE_NAME + "_" + column + "_index") >= 0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
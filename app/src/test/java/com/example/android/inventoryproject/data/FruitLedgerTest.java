@@ -0,0 +1,154 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.MovementEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the ledger of the stock movements: the triggers of {@link FruitDbHelper}
+ * that append the movements, and {@link FruitLedger}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitLedgerTest {
+
+    // Number of fruits and of random movements replayed by the consistency test.
+    private static final int RANDOM_FRUITS = 50;
+    private static final int RANDOM_MOVEMENTS = 5000;
+
+    private SQLiteDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        database = new FruitDbHelper(context).getWritableDatabase();
+    }
+
+    @Test
+    public void writes_appendTheirDeltas() {
+        insertFruit(1, 10);
+        setQuantity(1, 4);
+        // Writing the same quantity is not a movement.
+        setQuantity(1, 4);
+        setQuantity(1, 7);
+
+        assertEquals(3, DatabaseUtils.queryNumEntries(database, MovementEntry.TABLE_NAME));
+        assertEquals(7, FruitLedger.quantityOf(database, 1));
+
+        database.delete(FruitEntry.TABLE_NAME, null, null);
+        assertEquals("10,-6,3,-7", DatabaseUtils.stringForQuery(database, "SELECT group_concat("
+                + MovementEntry.COLUMN_DELTA + ") FROM (SELECT " + MovementEntry.COLUMN_DELTA
+                + " FROM " + MovementEntry.TABLE_NAME + " ORDER BY " + MovementEntry._ID + ")",
+                null));
+    }
+
+    @Test
+    public void compact_keepsTheQuantities() {
+        insertFruit(1, 10);
+        insertFruit(2, 5);
+        setQuantity(1, 4);
+        database.delete(FruitEntry.TABLE_NAME, FruitEntry._ID + " = 2", null);
+
+        assertEquals(4, FruitLedger.compact(database, Long.MAX_VALUE));
+        setQuantity(1, 6);
+
+        assertEquals(0, FruitLedger.findInconsistentFruits(database).length);
+        assertEquals(6, FruitLedger.quantityOf(database, 1));
+        // Only the snapshot of the remaining fruit is kept.
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, MovementEntry
+                .SNAPSHOTS_TABLE_NAME));
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, MovementEntry.TABLE_NAME));
+    }
+
+    @Test
+    public void compact_keepsTheRecentMovements() {
+        insertFruit(1, 10);
+        setQuantity(1, 4);
+
+        assertEquals(0, FruitLedger.compact(database, 0));
+
+        assertEquals(2, DatabaseUtils.queryNumEntries(database, MovementEntry.TABLE_NAME));
+        assertEquals(4, FruitLedger.quantityOf(database, 1));
+    }
+
+    @Test
+    public void removeMovements_removesAChunkOfTheFoldedMovements() {
+        insertFruit(1, 10);
+        setQuantity(1, 4);
+        setQuantity(1, 6);
+        long lastMovementId = FruitLedger.takeSnapshots(database);
+        // Appended after the snapshot: kept by the compaction.
+        setQuantity(1, 5);
+
+        assertEquals(2, FruitLedger.removeMovements(database, lastMovementId, Long.MAX_VALUE,
+                2));
+        assertEquals(1, FruitLedger.removeMovements(database, lastMovementId, Long.MAX_VALUE,
+                2));
+        assertEquals(0, FruitLedger.removeMovements(database, lastMovementId, Long.MAX_VALUE,
+                2));
+
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, MovementEntry.TABLE_NAME));
+        assertEquals(5, FruitLedger.quantityOf(database, 1));
+    }
+
+    @Test
+    public void findInconsistentFruits_reportsTheFruitsThatDifferFromTheLedger() {
+        insertFruit(1, 10);
+        insertFruit(2, 10);
+        // A movement recorded without changing the quantity.
+        database.execSQL("INSERT INTO " + MovementEntry.TABLE_NAME + " ("
+                + MovementEntry.COLUMN_FRUIT_ID + ", " + MovementEntry.COLUMN_DELTA + ", "
+                + MovementEntry.COLUMN_TIME + ") VALUES (2, -1, 0)");
+
+        assertArrayEquals(new long[]{2}, FruitLedger.findInconsistentFruits(database));
+    }
+
+    @Test
+    public void replay_matchesTheQuantitiesBeforeAndAfterCompaction() {
+        Random random = new Random(42);
+        long[] quantities = new long[RANDOM_FRUITS + 1];
+        for (int id = 1; id <= RANDOM_FRUITS; id++) {
+            insertFruit(id, 0);
+        }
+        for (int i = 0; i < RANDOM_MOVEMENTS; i++) {
+            int id = 1 + random.nextInt(RANDOM_FRUITS);
+            quantities[id] = Math.max(0, quantities[id] + random.nextInt(21) - 10);
+            setQuantity(id, quantities[id]);
+        }
+
+        assertEquals(0, FruitLedger.findInconsistentFruits(database).length);
+        FruitLedger.compact(database, Long.MAX_VALUE);
+        assertEquals(0, FruitLedger.findInconsistentFruits(database).length);
+        for (int id = 1; id <= RANDOM_FRUITS; id++) {
+            assertEquals(quantities[id], FruitLedger.quantityOf(database, id));
+        }
+        assertEquals(0, DatabaseUtils.queryNumEntries(database, MovementEntry.TABLE_NAME));
+    }
+
+    private void insertFruit(long id, long quantity) {
+        database.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " (" + FruitEntry._ID + ", "
+                + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG
+                + ", " + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                + ") VALUES (?, 'Fruit', ?, 'Orchard', '555-0100')", new Object[]{id, quantity});
+    }
+
+    private void setQuantity(long id, long quantity) {
+        database.execSQL("UPDATE " + FruitEntry.TABLE_NAME + " SET "
+                + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " = ? WHERE " + FruitEntry._ID
+                + " = ?", new Object[]{quantity, id});
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+import com.example.android.inventoryproject.benchmark.BenchmarkResults;
+import com.example.android.inventoryproject.benchmark.BenchmarkRunner;
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmarks of {@link FruitProvider} on an on-disk database, run with Robolectric (which
+ * uses a real SQLite). For each size of the fruits table, the common operations are measured:
+ * single and bulk inserts, single-row update, list page (summary and full projection),
+ * single-row query, and search (of a word matching a few fruits, and of a word matching all of
+ * them, limited to the results displayed by the list). The inserts are also measured on the
+ * database alone, with and without write-ahead logging. Run with -Dbenchmark.sizes=100000 for
+ * the latency of the search at 100k fruits.
+ * The benchmark only runs when -Pbenchmark is given to Gradle.
+ * The sizes are given with -Dbenchmark.sizes=1000,100000,1000000 (1000 by default), the results
+ * are written to build/benchmark-results/FruitProviderBenchmark.csv (or -Dbenchmark.output)
+ * and can be compared with the :benchmark:compareBenchmarks task.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitProviderBenchmark {
+
+    private static final int[] SIZES = BenchmarkRunner.parseSizes(System.getProperty(
+            "benchmark.sizes"), 1000);
+
+    private static final File OUTPUT = new File(System.getProperty("benchmark.output",
+            "build/benchmark-results/FruitProviderBenchmark.csv"));
+
+    // Number of fruits in a page of the list, and in each bulk insert.
+    private static final int PAGE_SIZE = 50;
+    private static final int BULK_SIZE = 100;
+
+    // Maximum number of results of a search, as in the list.
+    private static final int SEARCH_LIMIT = 100;
+
+    // Number of fruits inserted at once to fill the table.
+    private static final int FILL_BATCH_SIZE = 10000;
+
+    private final Context context = RuntimeEnvironment.application;
+    private final Random random = new Random(42);
+    private FruitProvider provider;
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS,
+                BenchmarkRunner.DEFAULT_MEASURED_ITERATIONS);
+        for (int size : SIZES) {
+            context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+            provider = Robolectric.setupContentProvider(FruitProvider.class, FruitContract
+                    .CONTENT_AUTHORITY);
+            try {
+                fill(size);
+                measureQueries(runner, size);
+                measureSearches(runner, size);
+                // The writes come last, as they grow the table.
+                measureWrites(runner, size);
+            } finally {
+                // Close the database before it is deleted, and stop the background thread.
+                provider.shutdown();
+            }
+
+            measureDatabaseInserts(runner, size, "databaseInsertWal", DatabaseSettings.DEFAULT);
+            // The settings of a database opened without FruitDbHelper.
+            measureDatabaseInserts(runner, size, "databaseInsertRollbackJournal", new
+                    DatabaseSettings(false, "FULL", 2048, 1000));
+        }
+
+        BenchmarkResults.write(OUTPUT, runner.getResults());
+        assertEquals(SIZES.length * 10, runner.getResults().size());
+    }
+
+    private void measureQueries(BenchmarkRunner runner, final int size) throws Exception {
+        runner.measure("queryById", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                Uri uri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, randomId(size));
+                readAll(provider.query(uri, null, null, null, null));
+            }
+        });
+        runner.measure("queryListPage", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                Uri uri = FruitEntry.buildPageUri(FruitEntry.SUMMARY_URI, randomId(size)
+                        - 1, PAGE_SIZE);
+                readAll(provider.query(uri, FruitEntry.SUMMARY_PROJECTION, null, null, null));
+            }
+        });
+        runner.measure("queryListPageFullProjection", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                Uri uri = FruitEntry.buildPageUri(FruitEntry.CONTENT_URI, randomId(size) - 1,
+                        PAGE_SIZE);
+                readAll(provider.query(uri, null, null, null, null));
+            }
+        });
+    }
+
+    private void measureSearches(BenchmarkRunner runner, final int size) throws Exception {
+        runner.measure("searchFewMatches", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                // The fruits whose number starts with the digits of a random ID.
+                search(String.valueOf(randomId(size)));
+            }
+        });
+        runner.measure("searchAllMatch", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                search("sup");
+            }
+        });
+    }
+
+    private void search(String text) {
+        Uri uri = FruitEntry.buildSearchUri(text).buildUpon().appendQueryParameter(FruitContract
+                .QUERY_PARAMETER_LIMIT, String.valueOf(SEARCH_LIMIT)).build();
+        readAll(provider.query(uri, FruitEntry.SUMMARY_PROJECTION, null, null, null));
+    }
+
+    private void measureWrites(BenchmarkRunner runner, final int size) throws Exception {
+        final ContentValues price = new ContentValues();
+        runner.measure("updateById", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                price.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, iteration % 50);
+                provider.update(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, randomId
+                        (size)), price, null, null);
+            }
+        });
+        runner.measure("insert", size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                provider.insert(FruitEntry.CONTENT_URI, createFruit(iteration));
+            }
+        });
+        final ContentValues[] fruits = new ContentValues[BULK_SIZE];
+        for (int i = 0; i < BULK_SIZE; i++) {
+            fruits[i] = createFruit(i);
+        }
+        runner.measure("bulkInsert" + BULK_SIZE, size, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                provider.bulkInsert(FruitEntry.CONTENT_URI, fruits);
+            }
+        });
+    }
+
+    /**
+     * Measure the insertion of a single fruit, in its own transaction, on a database with the
+     * given settings and size.
+     */
+    private void measureDatabaseInserts(BenchmarkRunner runner, int size, String name,
+                                        DatabaseSettings settings) throws Exception {
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        FruitDbHelper dbHelper = new FruitDbHelper(context, settings);
+        final SQLiteDatabase database = dbHelper.getWritableDatabase();
+        try {
+            database.beginTransaction();
+            try {
+                for (int i = 0; i < size; i++) {
+                    database.insert(FruitEntry.TABLE_NAME, null, createFruit(i));
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            runner.measure(name, size, new BenchmarkRunner.Operation() {
+                @Override
+                public void run(int iteration) {
+                    database.insert(FruitEntry.TABLE_NAME, null, createFruit(iteration));
+                }
+            });
+        } finally {
+            dbHelper.close();
+        }
+    }
+
+    private void fill(int size) {
+        ContentValues[] fruits = new ContentValues[Math.min(size, FILL_BATCH_SIZE)];
+        for (int inserted = 0; inserted < size; inserted += fruits.length) {
+            int count = Math.min(fruits.length, size - inserted);
+            ContentValues[] batch = count == fruits.length ? fruits : new ContentValues[count];
+            for (int i = 0; i < count; i++) {
+                batch[i] = createFruit(inserted + i);
+            }
+            provider.bulkInsert(FruitEntry.CONTENT_URI, batch);
+        }
+    }
+
+    private long randomId(int size) {
+        return 1 + random.nextInt(size);
+    }
+
+    /**
+     * Read every column of every row, as a list would, then close the cursor.
+     */
+    private static void readAll(Cursor cursor) {
+        try {
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    cursor.getString(i);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static ContentValues createFruit(int index) {
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Fruit " + index);
+        values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, index % 50);
+        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, index % 20);
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, "Supplier " + index % 7);
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "555-01" + index % 100);
+        return values;
+    }
+}
@@ -0,0 +1,604 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+import com.example.android.inventoryproject.data.FruitContract.SalesEntry;
+import com.example.android.inventoryproject.data.FruitContract.StatsEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local unit tests for {@link FruitProvider}, run on the JVM with Robolectric (which uses a real
+ * SQLite database).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FruitProviderTest {
+
+    // Number of rows inserted at once by the bulk insertion tests.
+    private static final int ROW_COUNT = 2000;
+
+    private FruitProvider provider;
+    private ContentResolver contentResolver;
+
+    @Before
+    public void setUp() {
+        provider = Robolectric.setupContentProvider(FruitProvider.class, FruitContract
+                .CONTENT_AUTHORITY);
+        contentResolver = RuntimeEnvironment.application.getContentResolver();
+
+        // Send the notifications right away, so the tests can check them.
+        Bundle extras = new Bundle();
+        extras.putLong(FruitContract.EXTRA_NOTIFICATION_WINDOW_MILLIS, 0);
+        provider.call(FruitContract.METHOD_CONFIGURE_NOTIFICATIONS, null, extras);
+    }
+
+    @After
+    public void tearDown() {
+        provider.shutdown();
+    }
+
+    @Test
+    public void bulkInsert_insertsAllRows() {
+        int rowsInserted = contentResolver.bulkInsert(FruitEntry.CONTENT_URI,
+                createFruits(ROW_COUNT));
+
+        assertEquals(ROW_COUNT, rowsInserted);
+        assertEquals(ROW_COUNT, countFruits());
+    }
+
+    @Test
+    public void bulkInsert_usesTableDefaults() {
+        ContentValues values = createFruit(0);
+        values.remove(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG);
+        values.remove(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG);
+
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, new ContentValues[]{values});
+
+        Cursor cursor = contentResolver.query(FruitEntry.CONTENT_URI, null, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(1, cursor.getInt(cursor.getColumnIndex(FruitEntry
+                    .COLUMN_PRODUCT_PRICE_PER_KG)));
+            assertEquals(1, cursor.getInt(cursor.getColumnIndex(FruitEntry
+                    .COLUMN_PRODUCT_QUANTITY_IN_KG)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void bulkInsert_invalidRowInsertsNothing() {
+        ContentValues[] fruits = createFruits(10);
+        fruits[5].put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, -1);
+
+        try {
+            contentResolver.bulkInsert(FruitEntry.CONTENT_URI, fruits);
+            fail("An invalid quantity should be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the whole batch is rejected.
+        }
+        assertEquals(0, countFruits());
+    }
+
+    @Test
+    public void applyBatch_notifiesEachUriOnceAfterCommit() throws Exception {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(3));
+        Uri firstFruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 1);
+        shadowOf(contentResolver).getNotifiedUris().clear();
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(FruitEntry.CONTENT_URI)
+                .withValues(createFruit(3)).build());
+        operations.add(ContentProviderOperation.newInsert(FruitEntry.CONTENT_URI)
+                .withValues(createFruit(4)).build());
+        operations.add(ContentProviderOperation.newUpdate(firstFruitUri)
+                .withValue(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, 42).build());
+        operations.add(ContentProviderOperation.newDelete(ContentUris.withAppendedId(FruitEntry
+                .CONTENT_URI, 2)).build());
+        contentResolver.applyBatch(FruitContract.CONTENT_AUTHORITY, operations);
+
+        assertEquals(4, countFruits());
+        // The four fruits changed, and the changes URI once for the whole batch.
+        assertEquals(5, shadowOf(contentResolver).getNotifiedUris().size());
+    }
+
+    @Test
+    public void update_notifiesEachUpdatedRowAndTheTableOnce() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(10));
+        shadowOf(contentResolver).getNotifiedUris().clear();
+
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, 99);
+        int rowsUpdated = contentResolver.update(FruitEntry.CONTENT_URI, values, FruitEntry
+                ._ID + "<=?", new String[]{"3"});
+
+        assertEquals(3, rowsUpdated);
+        List<ShadowContentResolver.NotifiedUri> notifiedUris = shadowOf(contentResolver)
+                .getNotifiedUris();
+        assertEquals(4, notifiedUris.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, i + 1),
+                    notifiedUris.get(i).uri);
+        }
+        assertEquals(FruitEntry.CHANGES_URI, notifiedUris.get(3).uri);
+    }
+
+    @Test
+    public void applyBatch_failingOperationRollsBackTheBatch() throws Exception {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(3));
+        shadowOf(contentResolver).getNotifiedUris().clear();
+
+        ContentValues invalidFruit = createFruit(4);
+        invalidFruit.remove(FruitEntry.COLUMN_PRODUCT_NAME);
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(FruitEntry.CONTENT_URI)
+                .withValues(createFruit(3)).build());
+        operations.add(ContentProviderOperation.newInsert(FruitEntry.CONTENT_URI)
+                .withValues(invalidFruit).build());
+        try {
+            contentResolver.applyBatch(FruitContract.CONTENT_AUTHORITY, operations);
+            fail("A fruit without a name should be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Expected, the whole batch is rolled back.
+        }
+
+        assertEquals(3, countFruits());
+        assertTrue(shadowOf(contentResolver).getNotifiedUris().isEmpty());
+    }
+
+    @Test
+    public void adjustQuantity_returnsNewQuantity() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(2));
+
+        Bundle result = adjustQuantity(2, 5);
+
+        // The second fruit starts with a quantity of 1.
+        assertEquals(6, result.getInt(FruitContract.EXTRA_NEW_QUANTITY));
+    }
+
+    @Test
+    public void adjustQuantity_neverGoesBelowZero() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(1));
+
+        // The first fruit starts with a quantity of 0.
+        Bundle result = adjustQuantity(1, -1);
+
+        assertFalse(result.containsKey(FruitContract.EXTRA_NEW_QUANTITY));
+    }
+
+    @Test
+    public void query_pageUriReturnsOnePageAfterTheGivenId() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(120));
+
+        Cursor cursor = contentResolver.query(FruitEntry.buildPageUri(FruitEntry
+                .CONTENT_URI, 50, 50), new
+                String[]{FruitEntry._ID}, null, null, null);
+        try {
+            assertEquals(50, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals(51, cursor.getLong(0));
+            assertTrue(cursor.moveToLast());
+            assertEquals(100, cursor.getLong(0));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void query_rangeUriReturnsTheRowsOfTheRange() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(120));
+        contentResolver.delete(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 60), null,
+                null);
+
+        Cursor cursor = contentResolver.query(FruitEntry.buildRangeUri(FruitEntry
+                .CONTENT_URI, 50, 100), new
+                String[]{FruitEntry._ID}, null, null, null);
+        try {
+            assertEquals(49, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void query_summaryUriTrimsTheProjection() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(1));
+
+        Cursor cursor = contentResolver.query(FruitEntry.SUMMARY_URI, new String[]{FruitEntry
+                ._ID, FruitEntry.COLUMN_PRODUCT_NAME, FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME},
+                null, null, null);
+        try {
+            assertArrayEquals(new String[]{FruitEntry._ID, FruitEntry.COLUMN_PRODUCT_NAME},
+                    cursor.getColumnNames());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void query_unknownColumnIsRejected() {
+        contentResolver.query(FruitEntry.CONTENT_URI, new String[]{"COUNT(*)"}, null, null, null);
+    }
+
+    @Test
+    public void query_searchUriRanksTheFruitsMatchingTheMostWords() {
+        ContentValues[] fruits = createFruits(3);
+        setNames(fruits[0], "Banana", "Apple Farm");
+        setNames(fruits[1], "Apple", "Orchard");
+        setNames(fruits[2], "Green apple", "Apple Farm");
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, fruits);
+
+        assertEquals(Arrays.asList("Green apple", "Apple", "Banana"), searchNames("app"));
+        assertEquals(Arrays.asList("Green apple"), searchNames("GRE app"));
+        assertEquals(Arrays.asList("Banana"), searchNames("bana*\""));
+        assertTrue(searchNames("  ").isEmpty());
+    }
+
+    @Test
+    public void query_searchUriOrdersTheFruitsWithAsManyMatchesByName() {
+        ContentValues[] fruits = createFruits(2);
+        setNames(fruits[0], "Zucchini and sweet apple", "Farm");
+        setNames(fruits[1], "Apple", "Orchard");
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, fruits);
+
+        // A single match each, whatever its position in the name.
+        assertEquals(Arrays.asList("Apple", "Zucchini and sweet apple"), searchNames("app"));
+    }
+
+    @Test
+    public void query_searchUriFoldsTheCaseAndAccentsOfNonAsciiLetters() {
+        ContentValues[] fruits = createFruits(2);
+        setNames(fruits[0], "Äpfel", "Obsthof");
+        setNames(fruits[1], "Épice", "Marché");
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, fruits);
+
+        assertEquals(Arrays.asList("Äpfel"), searchNames("äpf"));
+        assertEquals(Arrays.asList("Äpfel"), searchNames("ÄPFEL"));
+        assertEquals(Arrays.asList("Épice"), searchNames("épi"));
+        assertEquals(Arrays.asList("Épice"), searchNames("MARCHE"));
+    }
+
+    @Test
+    public void query_searchUriFollowsUpdatesAndDeletes() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(2));
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Kiwi");
+        contentResolver.update(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 1), values,
+                null, null);
+        contentResolver.delete(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 2), null,
+                null);
+
+        assertEquals(Arrays.asList("Kiwi"), searchNames("kiw"));
+        assertTrue(searchNames("fruit").isEmpty());
+    }
+
+    @Test
+    public void query_cancelledQueryIsAbandoned() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(10));
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+
+        try {
+            Cursor cursor = provider.query(FruitEntry.buildSearchUri("fruit"), null, null, null,
+                    null, cancellationSignal);
+            cursor.getCount();
+            fail("The cancelled query returned a cursor");
+        } catch (OperationCanceledException expected) {
+            // The query was cancelled before running.
+        }
+    }
+
+    @Test
+    public void query_fruitIdIsServedFromTheCacheAndFollowsWrites() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(1));
+        Uri fruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 1);
+
+        assertEquals("Fruit 0", queryName(fruitUri));
+        assertEquals("Fruit 0", queryName(fruitUri));
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Kiwi");
+        contentResolver.update(fruitUri, values, null, null);
+        assertEquals("Kiwi", queryName(fruitUri));
+        assertEquals(0, adjustQuantity(1, 0).getInt(FruitContract.EXTRA_NEW_QUANTITY));
+
+        // Read once, served once from the cache, read again after the update.
+        Bundle stats = provider.call(FruitContract.METHOD_GET_CACHE_STATS, null, null);
+        assertEquals(2, stats.getLong(FruitContract.EXTRA_CACHE_MISSES));
+        assertEquals(1, stats.getLong(FruitContract.EXTRA_CACHE_HITS));
+
+        contentResolver.delete(fruitUri, null, null);
+        assertNull(queryName(fruitUri));
+    }
+
+    @Test
+    public void adjustQuantity_leavesTheCacheAloneWhenTheTransactionRollsBack() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(6));
+        Uri fruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 6);
+        assertEquals(5, queryCachedQuantity(fruitUri));
+        // Make the sale fail after the quantity has been updated in the transaction.
+        FruitDbHelper dbHelper = new FruitDbHelper(RuntimeEnvironment.application);
+        SQLiteDatabase database = dbHelper.getWritableDatabase();
+        database.execSQL("CREATE TRIGGER fail_sales BEFORE INSERT ON " + SalesEntry.TABLE_NAME
+                + " BEGIN SELECT RAISE(ABORT, 'Sale refused'); END");
+        dbHelper.close();
+
+        try {
+            FruitContract.sell(contentResolver, fruitUri, 2);
+            fail("The sale should have failed");
+        } catch (SQLiteException expected) {
+            // The quantity update is rolled back with the sale.
+        }
+
+        assertEquals(5, queryCachedQuantity(fruitUri));
+    }
+
+    @Test
+    public void update_dropsTheCachedRowsOnceCommitted() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(11));
+        Uri fruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 11);
+        assertEquals(10, queryCachedQuantity(fruitUri));
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, 4);
+
+        contentResolver.update(FruitEntry.CONTENT_URI, values, FruitEntry._ID + " > ?",
+                new String[]{"9"});
+
+        long missesBefore = provider.call(FruitContract.METHOD_GET_CACHE_STATS, null, null)
+                .getLong(FruitContract.EXTRA_CACHE_MISSES);
+        assertEquals(4, queryCachedQuantity(fruitUri));
+        // The row was dropped rather than updated, it is read again from the database.
+        assertEquals(missesBefore + 1, provider.call(FruitContract.METHOD_GET_CACHE_STATS, null,
+                null).getLong(FruitContract.EXTRA_CACHE_MISSES));
+    }
+
+    @Test
+    public void query_statsUriFollowsEveryWrite() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(20));
+        contentResolver.insert(FruitEntry.CONTENT_URI, createFruit(20));
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, 7);
+        contentResolver.update(FruitEntry.CONTENT_URI, values, FruitEntry
+                .COLUMN_PRODUCT_QUANTITY_IN_KG + " > ?", new String[]{"10"});
+        adjustQuantity(1, 5);
+        contentResolver.delete(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 2), null,
+                null);
+
+        Cursor cursor = contentResolver.query(StatsEntry.CONTENT_URI, null, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            // Fruit 0 has now 5kg at 0$, fruit 1 is deleted and the fruits with more than 10kg
+            // cost 7$. Fruits 0 and 20 were out of stock, but fruit 0 has been restocked.
+            long totalValue = 0;
+            long totalQuantity = 5;
+            for (int i = 2; i <= 20; i++) {
+                int quantity = i % 20;
+                totalValue += (quantity > 10 ? 7 : i % 50) * quantity;
+                totalQuantity += quantity;
+            }
+            assertEquals(totalValue, cursor.getLong(cursor.getColumnIndex(StatsEntry
+                    .COLUMN_TOTAL_STOCK_VALUE)));
+            assertEquals(totalQuantity, cursor.getLong(cursor.getColumnIndex(StatsEntry
+                    .COLUMN_TOTAL_QUANTITY_IN_KG)));
+            assertEquals(1, cursor.getLong(cursor.getColumnIndex(StatsEntry
+                    .COLUMN_OUT_OF_STOCK_COUNT)));
+        } finally {
+            cursor.close();
+        }
+        assertTrue(provider.call(FruitContract.METHOD_CHECK_STATS, null, null).getBoolean
+                (FruitContract.EXTRA_STATS_CONSISTENT));
+    }
+
+    @Test
+    public void sell_recordsTheSalesInTheRollups() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(6));
+        // Fruit 5 has 5kg at 5$.
+        Uri fruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 6);
+
+        assertEquals(3, FruitContract.sell(contentResolver, fruitUri, 2));
+        assertEquals(0, FruitContract.sell(contentResolver, fruitUri, 3));
+        // Nothing left to sell: no sale is recorded.
+        assertEquals(-1, FruitContract.sell(contentResolver, fruitUri, 1));
+
+        Cursor cursor = contentResolver.query(SalesEntry.CONTENT_URI, new String[]{SalesEntry
+                .COLUMN_FRUIT_ID, SalesEntry.COLUMN_QUANTITY, SalesEntry.COLUMN_REVENUE}, null,
+                null, SalesEntry._ID);
+        try {
+            assertEquals(2, cursor.getCount());
+            assertTrue(cursor.moveToLast());
+            assertEquals(6, cursor.getLong(0));
+            assertEquals(3, cursor.getInt(1));
+            assertEquals(15, cursor.getInt(2));
+        } finally {
+            cursor.close();
+        }
+        // The sales may fall on both sides of an hour: check the totals of the buckets.
+        for (Uri rollupUri : new Uri[]{SalesEntry.HOURLY_URI, SalesEntry.DAILY_URI}) {
+            assertArrayEquals(new long[]{5, 25, 2}, sumRollups(rollupUri));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sell_rejectsANegativeQuantity() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(6));
+        FruitContract.sell(contentResolver, ContentUris.withAppendedId(FruitEntry.CONTENT_URI,
+                6), -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void adjustQuantity_requiresExtras() {
+        provider.call(FruitContract.METHOD_ADJUST_QUANTITY, null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sell_requiresTheQuantitySold() {
+        Bundle extras = new Bundle();
+        extras.putLong(FruitContract.EXTRA_FRUIT_ID, 1);
+        provider.call(FruitContract.METHOD_SELL, null, extras);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void importCsv_requiresAUri() {
+        provider.call(FruitContract.METHOD_IMPORT_CSV, null, null);
+    }
+
+    @Test
+    public void getMetrics_countsTheOperationsPerUri() {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(3));
+        countFruits();
+        queryName(ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 1));
+
+        Bundle metrics = provider.call(FruitContract.METHOD_GET_METRICS, null, null);
+
+        assertEquals(3, metrics.size());
+        assertEquals(3, metrics.getBundle("bulkInsert FRUITS").getLong(FruitContract
+                .EXTRA_METRIC_ROWS));
+        Bundle queries = metrics.getBundle("query FRUITS");
+        assertEquals(1, queries.getLong(FruitContract.EXTRA_METRIC_COUNT));
+        assertEquals(3, queries.getLong(FruitContract.EXTRA_METRIC_ROWS));
+        assertEquals(1, metrics.getBundle("query FRUIT_ID").getLong(FruitContract
+                .EXTRA_METRIC_ROWS));
+    }
+
+    @Test
+    public void getMetrics_countsTheSalesAndTheBatches() throws Exception {
+        contentResolver.bulkInsert(FruitEntry.CONTENT_URI, createFruits(3));
+        Uri fruitUri = ContentUris.withAppendedId(FruitEntry.CONTENT_URI, 3);
+        FruitContract.sell(contentResolver, fruitUri, 1);
+        FruitContract.sell(contentResolver, fruitUri, 1);
+        adjustQuantity(3, 5);
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newDelete(fruitUri).build());
+        contentResolver.applyBatch(FruitContract.CONTENT_AUTHORITY, operations);
+
+        Bundle metrics = provider.call(FruitContract.METHOD_GET_METRICS, null, null);
+
+        Bundle sales = metrics.getBundle("sell FRUIT_ID");
+        assertEquals(2, sales.getLong(FruitContract.EXTRA_METRIC_COUNT));
+        assertEquals(2, sales.getLong(FruitContract.EXTRA_METRIC_ROWS));
+        assertEquals(1, metrics.getBundle("adjustQuantity FRUIT_ID").getLong(FruitContract
+                .EXTRA_METRIC_COUNT));
+        assertEquals(1, metrics.getBundle("applyBatch FRUITS").getLong(FruitContract
+                .EXTRA_METRIC_ROWS));
+        assertEquals(1, metrics.getBundle("delete FRUIT_ID").getLong(FruitContract
+                .EXTRA_METRIC_COUNT));
+    }
+
+    private long[] sumRollups(Uri rollupUri) {
+        Cursor cursor = contentResolver.query(rollupUri, new String[]{SalesEntry.COLUMN_QUANTITY,
+                SalesEntry.COLUMN_REVENUE, SalesEntry.COLUMN_SALE_COUNT}, null, null, null);
+        try {
+            long[] totals = new long[3];
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += cursor.getLong(i);
+                }
+            }
+            return totals;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private String queryName(Uri fruitUri) {
+        Cursor cursor = contentResolver.query(fruitUri, new String[]{FruitEntry
+                .COLUMN_PRODUCT_NAME}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Return the quantity of a fruit read by ID, which is served from the cache once read.
+     */
+    private int queryCachedQuantity(Uri fruitUri) {
+        Cursor cursor = provider.query(fruitUri, new String[]{FruitEntry
+                .COLUMN_PRODUCT_QUANTITY_IN_KG}, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<String> searchNames(String searchText) {
+        Cursor cursor = contentResolver.query(FruitEntry.buildSearchUri(searchText), new
+                String[]{FruitEntry.COLUMN_PRODUCT_NAME}, null, null, null);
+        try {
+            List<String> names = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+            return names;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void setNames(ContentValues values, String name, String supplierName) {
+        values.put(FruitEntry.COLUMN_PRODUCT_NAME, name);
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, supplierName);
+    }
+
+    private Bundle adjustQuantity(long id, int delta) {
+        Bundle extras = new Bundle();
+        extras.putLong(FruitContract.EXTRA_FRUIT_ID, id);
+        extras.putInt(FruitContract.EXTRA_QUANTITY_DELTA, delta);
+        return provider.call(FruitContract.METHOD_ADJUST_QUANTITY, null, extras);
+    }
+
+    private int countFruits() {
+        Cursor cursor = contentResolver.query(FruitEntry.CONTENT_URI, new String[]{FruitEntry
+                ._ID}, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static ContentValues[] createFruits(int count) {
+        ContentValues[] fruits = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            fruits[i] = createFruit(i);
+        }
+        return fruits;
+    }
+
+    private static ContentValues createFruit(int index) {
+        ContentValues values = new ContentValues();
+        values.put(FruitEntry.COLUMN_PRODUCT_NAME, "Fruit " + index);
+        values.put(FruitEntry.COLUMN_PRODUCT_PRICE_PER_KG, index % 50);
+        values.put(FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG, index % 20);
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME, "Supplier " + index % 7);
+        values.put(FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER, "555-01" + index % 100);
+        return values;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.android.inventoryproject.data;
+
+import java.io.Reader;
+
+/**
+ * Reader of a CSV of generated fruits, written as it is read so the input itself takes no
+ * memory.
+ */
+class GeneratedCsvReader extends Reader {
+    private final int rowCount;
+    private int rowsRead = -1;
+    private String line = "";
+    private int position;
+
+    GeneratedCsvReader(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (position == line.length()) {
+            if (rowsRead == rowCount) {
+                return -1;
+            }
+            line = rowsRead == -1 ? "Name,Price,Quantity,SupplierName,SupplierPhoneNumber\r\n"
+                    : "Fruit " + rowsRead + "," + rowsRead % 50 + "," + rowsRead % 20
+                    + ",Supplier " + rowsRead % 7 + ",555-0100\r\n";
+            rowsRead++;
+            position = 0;
+        }
+        int count = Math.min(length, line.length() - position);
+        line.getChars(position, position + count, buffer, offset);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
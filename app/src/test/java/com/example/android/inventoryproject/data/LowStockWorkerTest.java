@@ -0,0 +1,156 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Looper;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the low stock alerts: the trigger of {@link FruitDbHelper} that fills
+ * the queue, and the {@link LowStockWorker} that drains it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LowStockWorkerTest {
+
+    private SQLiteDatabase database;
+    private LowStockWorker worker;
+
+    // Batches handed to the listener.
+    private final List<List<LowStockEvent>> batches = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.application;
+        context.deleteDatabase(FruitDbHelper.DATABASE_NAME);
+        FruitDbHelper dbHelper = new FruitDbHelper(context);
+        database = dbHelper.getWritableDatabase();
+        worker = new LowStockWorker(dbHelper, Looper.getMainLooper(), new LowStockWorker
+                .Listener() {
+            @Override
+            public void onLowStock(List<LowStockEvent> events) {
+                batches.add(events);
+            }
+        });
+    }
+
+    @Test
+    public void drain_handsTheFruitsThatCrossedTheirThreshold() {
+        insertFruit(1, "Apple", 10, 5);
+        insertFruit(2, "Banana", 10, 5);
+
+        setQuantity(1, 6);
+        setQuantity(2, 5);
+        // Already below the threshold: no new alert.
+        setQuantity(2, 3);
+
+        worker.drain();
+
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        LowStockEvent event = batches.get(0).get(0);
+        assertEquals(2, event.fruitId);
+        assertEquals("Banana", event.name);
+        assertEquals(5, event.quantity);
+        assertEquals(5, event.reorderThreshold);
+        assertEquals(0, DatabaseUtils.queryNumEntries(database, FruitEntry
+                .LOW_STOCK_TABLE_NAME));
+    }
+
+    @Test
+    public void drain_handsTheAlertsByBatches() {
+        int fruitCount = LowStockWorker.BATCH_SIZE + 1;
+        for (int id = 1; id <= fruitCount; id++) {
+            insertFruit(id, "Fruit " + id, 1, 0);
+        }
+        database.execSQL("UPDATE " + FruitEntry.TABLE_NAME + " SET "
+                + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " = 0");
+
+        worker.drain();
+
+        assertEquals(2, batches.size());
+        assertEquals(LowStockWorker.BATCH_SIZE, batches.get(0).size());
+        assertEquals(1, batches.get(1).size());
+        assertEquals(fruitCount, batches.get(1).get(0).fruitId);
+    }
+
+    @Test
+    public void wakeUp_drainsWhileTheWakeUpsKeepComing() {
+        insertFruit(1, "Apple", 1, 0);
+        setQuantity(1, 0);
+
+        // Wake-ups closer than the delay, for twice the delay.
+        for (int i = 0; i < 8; i++) {
+            worker.wakeUp();
+            ShadowLooper.idleMainLooper(LowStockWorker.DELAY_MILLIS / 4, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(0, DatabaseUtils.queryNumEntries(database, FruitEntry
+                .LOW_STOCK_TABLE_NAME));
+    }
+
+    @Test
+    public void wakeUp_drainsAgainAfterADrain() {
+        insertFruit(1, "Apple", 1, 0);
+        insertFruit(2, "Banana", 1, 0);
+        setQuantity(1, 0);
+        worker.wakeUp();
+        ShadowLooper.idleMainLooper(LowStockWorker.DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+        setQuantity(2, 0);
+        worker.wakeUp();
+        ShadowLooper.idleMainLooper(LowStockWorker.DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(1).get(0).fruitId);
+    }
+
+    @Test
+    public void drain_keepsTheAlertsIfTheListenerFails() {
+        worker = new LowStockWorker(new FruitDbHelper(RuntimeEnvironment.application), Looper
+                .getMainLooper(), new LowStockWorker.Listener() {
+            @Override
+            public void onLowStock(List<LowStockEvent> events) {
+                throw new IllegalStateException();
+            }
+        });
+        insertFruit(1, "Apple", 1, 0);
+        setQuantity(1, 0);
+
+        worker.drain();
+
+        assertEquals(1, DatabaseUtils.queryNumEntries(database, FruitEntry
+                .LOW_STOCK_TABLE_NAME));
+    }
+
+    private void insertFruit(long id, String name, int quantity, int reorderThreshold) {
+        database.execSQL("INSERT INTO " + FruitEntry.TABLE_NAME + " (" + FruitEntry._ID + ", "
+                + FruitEntry.COLUMN_PRODUCT_NAME + ", " + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG
+                + ", " + FruitEntry.COLUMN_PRODUCT_REORDER_THRESHOLD + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_NAME + ", "
+                + FruitEntry.COLUMN_PRODUCT_SUPPLIER_PHONE_NUMBER
+                + ") VALUES (?, ?, ?, ?, 'Orchard', '555-0100')", new Object[]{id, name,
+                quantity, reorderThreshold});
+    }
+
+    private void setQuantity(long id, int quantity) {
+        database.execSQL("UPDATE " + FruitEntry.TABLE_NAME + " SET "
+                + FruitEntry.COLUMN_PRODUCT_QUANTITY_IN_KG + " = ? WHERE " + FruitEntry._ID
+                + " = ?", new Object[]{quantity, id});
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.inventoryproject.data;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Looper;
+
+import com.example.android.inventoryproject.data.FruitContract.FruitEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Local unit tests for {@link NotificationDispatcher}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NotificationDispatcherTest {
+
+    private ContentResolver contentResolver;
+    private NotificationDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        contentResolver = RuntimeEnvironment.application.getContentResolver();
+        dispatcher = new NotificationDispatcher(contentResolver, Looper.getMainLooper());
+    }
+
+    @Test
+    public void notifyChange_coalescesABurstIntoOneNotification() {
+        Uri fruitUri = Uri.withAppendedPath(FruitEntry.CONTENT_URI, "1");
+        for (int i = 0; i < 20; i++) {
+            dispatcher.notifyChange(fruitUri);
+        }
+        assertTrue(shadowOf(contentResolver).getNotifiedUris().isEmpty());
+
+        ShadowLooper.idleMainLooper(NotificationDispatcher.DEFAULT_WINDOW_MILLIS, TimeUnit
+                .MILLISECONDS);
+
+        assertEquals(1, shadowOf(contentResolver).getNotifiedUris().size());
+        assertEquals(19, dispatcher.getSavedCount());
+    }
+
+    @Test
+    public void notifyChange_sendsOneNotificationPerUri() {
+        dispatcher.notifyChange(FruitEntry.CHANGES_URI);
+        dispatcher.notifyChange(Uri.withAppendedPath(FruitEntry.CONTENT_URI, "1"));
+        dispatcher.notifyChange(FruitEntry.CHANGES_URI);
+
+        ShadowLooper.idleMainLooper(NotificationDispatcher.DEFAULT_WINDOW_MILLIS, TimeUnit
+                .MILLISECONDS);
+
+        assertEquals(2, shadowOf(contentResolver).getNotifiedUris().size());
+        assertEquals(1, dispatcher.getSavedCount());
+    }
+
+    @Test
+    public void notifyChange_withoutWindowSendsRightAway() {
+        dispatcher.setWindowMillis(0);
+
+        dispatcher.notifyChange(FruitEntry.CHANGES_URI);
+        dispatcher.notifyChange(FruitEntry.CHANGES_URI);
+
+        assertEquals(2, shadowOf(contentResolver).getNotifiedUris().size());
+        assertEquals(0, dispatcher.getSavedCount());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.android.inventoryproject.data;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ProviderMetrics}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ProviderMetricsTest {
+
+    private final ProviderMetrics metrics = new ProviderMetrics(new String[]{"query", "insert"},
+            new String[]{"FRUITS", "FRUIT_ID"});
+
+    @Test
+    public void bucketOf_usesPowersOfTwoMicroseconds() {
+        assertEquals(0, ProviderMetrics.bucketOf(999));
+        assertEquals(1, ProviderMetrics.bucketOf(1000));
+        assertEquals(2, ProviderMetrics.bucketOf(3999));
+        assertEquals(11, ProviderMetrics.bucketOf(1024 * 1000));
+        assertEquals(ProviderMetrics.BUCKET_COUNT - 1, ProviderMetrics.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void toBundle_sumsTheOperationsOfAllThreads() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        metrics.record(1, 0, 1500, 2);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Bundle result = metrics.toBundle();
+
+        assertEquals(1, result.size());
+        Bundle insert = result.getBundle("insert FRUITS");
+        assertEquals(4000, insert.getLong(FruitContract.EXTRA_METRIC_COUNT));
+        assertEquals(4000 * 1500, insert.getLong(FruitContract.EXTRA_METRIC_TOTAL_NANOS));
+        assertEquals(8000, insert.getLong(FruitContract.EXTRA_METRIC_ROWS));
+        assertEquals(4000, insert.getLongArray(FruitContract.EXTRA_METRIC_HISTOGRAM)[1]);
+    }
+
+    @Test
+    public void toBundle_estimatesThePercentiles() {
+        for (int i = 0; i < 99; i++) {
+            metrics.record(0, 1, 500, 1);
+        }
+        metrics.record(0, 1, 100 * 1000, 1);
+
+        Bundle query = metrics.toBundle().getBundle("query FRUIT_ID");
+
+        assertEquals(1000, query.getLong(FruitContract.EXTRA_METRIC_P50_NANOS));
+        assertEquals(1000, query.getLong(FruitContract.EXTRA_METRIC_P99_NANOS));
+        metrics.record(0, 1, 100 * 1000, 1);
+        assertEquals(128 * 1000, metrics.toBundle().getBundle("query FRUIT_ID").getLong(
+                FruitContract.EXTRA_METRIC_P99_NANOS));
+    }
+
+    @Test
+    public void dump_writesALinePerUsedSlot() {
+        metrics.record(0, 0, 2000, 50);
+        StringWriter dump = new StringWriter();
+
+        metrics.dump(new PrintWriter(dump, true));
+
+        assertTrue(dump.toString(), dump.toString().startsWith("query FRUITS: 1 ops, 50 rows"));
+        assertEquals(1, dump.toString().split("\n").length);
+    }
+}
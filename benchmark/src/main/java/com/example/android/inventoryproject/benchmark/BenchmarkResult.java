@@ -0,0 +1,72 @@
+package com.example.android.inventoryproject.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Times of an operation measured by a {@link BenchmarkRunner}, in nanoseconds per run.
+ */
+public final class BenchmarkResult {
+
+    public final String name;
+    public final int size;
+    public final int iterations;
+    public final long meanNanos;
+    public final long p50Nanos;
+    public final long p90Nanos;
+    public final long p99Nanos;
+
+    /**
+     * Constructs a new {@link BenchmarkResult}.
+     */
+    public BenchmarkResult(String name, int size, int iterations, long meanNanos, long p50Nanos,
+                           long p90Nanos, long p99Nanos) {
+        this.name = name;
+        this.size = size;
+        this.iterations = iterations;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+    }
+
+    /**
+     * Return the result of the given times, which are sorted in place.
+     */
+    static BenchmarkResult of(String name, int size, long[] nanos) {
+        Arrays.sort(nanos);
+        long total = 0;
+        for (long time : nanos) {
+            total += time;
+        }
+        return new BenchmarkResult(name, size, nanos.length, total / nanos.length,
+                percentile(nanos, 50), percentile(nanos, 90), percentile(nanos, 99));
+    }
+
+    /**
+     * Return the given percentile of sorted times (nearest rank).
+     */
+    static long percentile(long[] sortedNanos, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sortedNanos.length);
+        return sortedNanos[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * Return the number of runs per second, from the mean time.
+     */
+    public double getOpsPerSecond() {
+        return meanNanos == 0 ? 0 : 1e9 / meanNanos;
+    }
+
+    /**
+     * Return the key of the result in a comparison: the same benchmark on the same size.
+     */
+    String getKey() {
+        return name + "@" + size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d rows): %.0f ops/s, p50 %.1f us, p90 %.1f us, p99 %.1f us",
+                name, size, getOpsPerSecond(), p50Nanos / 1e3, p90Nanos / 1e3, p99Nanos / 1e3);
+    }
+}
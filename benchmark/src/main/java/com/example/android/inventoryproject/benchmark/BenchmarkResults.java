@@ -0,0 +1,87 @@
+package com.example.android.inventoryproject.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads and writes files of benchmark results: CSV with a header line and one line per result,
+ * so they can be compared between builds or loaded in a spreadsheet.
+ */
+public final class BenchmarkResults {
+
+    // Header line of the files.
+    static final String HEADER = "benchmark,size,iterations,mean_ns,p50_ns,p90_ns,p99_ns,"
+            + "ops_per_s";
+
+    private static final String UTF_8 = "UTF-8";
+
+    private BenchmarkResults() {
+    }
+
+    /**
+     * Write the results to a file, replacing it. Its directory is created if needed.
+     */
+    public static void write(File file, List<BenchmarkResult> results) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+        try {
+            writer.write(HEADER + "\n");
+            for (BenchmarkResult result : results) {
+                writer.write(String.format(Locale.US, "%s,%d,%d,%d,%d,%d,%d,%.1f\n",
+                        result.name, result.size, result.iterations, result.meanNanos,
+                        result.p50Nanos, result.p90Nanos, result.p99Nanos,
+                        result.getOpsPerSecond()));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Read the results of a file written by {@link #write(File, List)}.
+     */
+    public static List<BenchmarkResult> read(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+                file), UTF_8));
+        try {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new IOException("Not a benchmark results file: " + file);
+            }
+            List<BenchmarkResult> results = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 8) {
+                    throw new IOException("Invalid line in " + file + ": " + line);
+                }
+                try {
+                    results.add(new BenchmarkResult(fields[0], Integer.parseInt(fields[1]),
+                            Integer.parseInt(fields[2]), Long.parseLong(fields[3]),
+                            Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                            Long.parseLong(fields[6])));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid line in " + file + ": " + line, e);
+                }
+            }
+            return results;
+        } finally {
+            reader.close();
+        }
+    }
+}
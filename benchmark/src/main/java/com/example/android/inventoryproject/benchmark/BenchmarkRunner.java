@@ -0,0 +1,100 @@
+package com.example.android.inventoryproject.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times operations: each one is run a number of times to warm up (JIT, caches), then a number
+ * of times measured one by one, so the result has the distribution of the times and not only
+ * their mean.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * An operation to measure.
+     */
+    public interface Operation {
+        /**
+         * Run the operation once.
+         *
+         * @param iteration the number of the run, from 0, counting the warm-up runs
+         */
+        void run(int iteration) throws Exception;
+    }
+
+    // Default numbers of warm-up and of measured runs.
+    public static final int DEFAULT_WARMUP_ITERATIONS = 100;
+    public static final int DEFAULT_MEASURED_ITERATIONS = 500;
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+
+    // Results of all the operations measured so far.
+    private final List<BenchmarkResult> results = new ArrayList<>();
+
+    /**
+     * Constructs a new {@link BenchmarkRunner}.
+     *
+     * @param warmupIterations   the number of runs before the measurement
+     * @param measuredIterations the number of runs measured
+     */
+    public BenchmarkRunner(int warmupIterations, int measuredIterations) {
+        if (warmupIterations < 0 || measuredIterations <= 0) {
+            throw new IllegalArgumentException("Invalid iterations " + warmupIterations + ", "
+                    + measuredIterations);
+        }
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    /**
+     * Warm up and measure an operation, and keep its result.
+     *
+     * @param name the name of the benchmark
+     * @param size the size of the data the operation runs on (the number of rows)
+     * @param operation the operation
+     * @return the result of the measurement
+     */
+    public BenchmarkResult measure(String name, int size, Operation operation) throws
+            Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run(i);
+        }
+        long[] nanos = new long[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            long start = System.nanoTime();
+            operation.run(warmupIterations + i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        BenchmarkResult result = BenchmarkResult.of(name, size, nanos);
+        results.add(result);
+        return result;
+    }
+
+    /**
+     * Return the results of all the operations measured so far, in order.
+     */
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Parse a comma-separated list of sizes, such as the value of a system property, or return
+     * the default sizes if it is null.
+     */
+    public static int[] parseSizes(String sizes, int... defaultSizes) {
+        if (sizes == null || sizes.trim().isEmpty()) {
+            return Arrays.copyOf(defaultSizes, defaultSizes.length);
+        }
+        String[] parts = sizes.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+            if (result[i] <= 0) {
+                throw new IllegalArgumentException("Invalid size " + parts[i]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.android.inventoryproject.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two files of benchmark results, such as the results of the main branch and of a
+ * change. The median times of the same benchmark on the same size are compared: a benchmark
+ * whose median is slower by more than the allowed percentage has regressed.
+ * Usage: CompareBenchmarks baseline.csv current.csv [maxRegressionPercent]. The exit status is
+ * 1 if a benchmark has regressed.
+ */
+public final class CompareBenchmarks {
+
+    private CompareBenchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: CompareBenchmarks baseline.csv current.csv "
+                    + "[maxRegressionPercent]");
+            System.exit(2);
+        }
+        double maxRegressionPercent = args.length == 3 ? Double.parseDouble(args[2]) : 10;
+        List<String> regressions = compare(BenchmarkResults.read(new File(args[0])),
+                BenchmarkResults.read(new File(args[1])), maxRegressionPercent);
+        if (!regressions.isEmpty()) {
+            for (String regression : regressions) {
+                System.err.println("Regression: " + regression);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print the change of the median of each benchmark found in both lists, and return the
+     * descriptions of the benchmarks that have regressed by more than the given percentage.
+     */
+    static List<String> compare(List<BenchmarkResult> baseline, List<BenchmarkResult> current,
+                                double maxRegressionPercent) {
+        Map<String, BenchmarkResult> baselineByKey = new LinkedHashMap<>();
+        for (BenchmarkResult result : baseline) {
+            baselineByKey.put(result.getKey(), result);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (BenchmarkResult result : current) {
+            BenchmarkResult before = baselineByKey.get(result.getKey());
+            if (before == null || before.p50Nanos == 0) {
+                System.out.println(result.getKey() + ": no baseline");
+                continue;
+            }
+            double changePercent = (result.p50Nanos - before.p50Nanos) * 100.0 / before.p50Nanos;
+            String description = String.format("%s: p50 %.1f us -> %.1f us (%+.1f%%)", result
+                    .getKey(), before.p50Nanos / 1e3, result.p50Nanos / 1e3, changePercent);
+            System.out.println(description);
+            if (changePercent > maxRegressionPercent) {
+                regressions.add(description);
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.android.inventoryproject.benchmark;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the benchmark harness.
+ */
+public class BenchmarkRunnerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void measure_runsTheWarmUpThenTheMeasuredIterations() throws Exception {
+        final int[] runs = new int[1];
+        BenchmarkRunner runner = new BenchmarkRunner(3, 10);
+
+        BenchmarkResult result = runner.measure("count", 1, new BenchmarkRunner.Operation() {
+            @Override
+            public void run(int iteration) {
+                assertEquals(runs[0]++, iteration);
+            }
+        });
+
+        assertEquals(13, runs[0]);
+        assertEquals(10, result.iterations);
+        assertEquals(Collections.singletonList(result), runner.getResults());
+    }
+
+    @Test
+    public void of_computesThePercentiles() {
+        long[] nanos = new long[100];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = (100 - i) * 10;
+        }
+
+        BenchmarkResult result = BenchmarkResult.of("times", 1, nanos);
+
+        assertEquals(505, result.meanNanos);
+        assertEquals(500, result.p50Nanos);
+        assertEquals(900, result.p90Nanos);
+        assertEquals(990, result.p99Nanos);
+    }
+
+    @Test
+    public void parseSizes_fallsBackToTheDefaults() {
+        assertArrayEquals(new int[]{1000}, BenchmarkRunner.parseSizes(null, 1000));
+        assertArrayEquals(new int[]{1000, 100000}, BenchmarkRunner.parseSizes(" 1000,100000",
+                1));
+    }
+
+    @Test
+    public void write_isReadBack() throws Exception {
+        File file = new File(folder.getRoot(), "results/benchmark.csv");
+        List<BenchmarkResult> results = Arrays.asList(new BenchmarkResult("insert", 1000, 10,
+                20, 15, 30, 40));
+
+        BenchmarkResults.write(file, results);
+        BenchmarkResult result = BenchmarkResults.read(file).get(0);
+
+        assertEquals("insert", result.name);
+        assertEquals(1000, result.size);
+        assertEquals(15, result.p50Nanos);
+        assertEquals(40, result.p99Nanos);
+    }
+
+    @Test
+    public void compare_reportsTheRegressions() {
+        List<BenchmarkResult> baseline = Arrays.asList(
+                new BenchmarkResult("insert", 1000, 10, 100, 100, 100, 100),
+                new BenchmarkResult("query", 1000, 10, 100, 100, 100, 100));
+        List<BenchmarkResult> current = Arrays.asList(
+                new BenchmarkResult("insert", 1000, 10, 105, 105, 105, 105),
+                new BenchmarkResult("query", 1000, 10, 150, 150, 150, 150),
+                new BenchmarkResult("query", 100000, 10, 900, 900, 900, 900));
+
+        List<String> regressions = CompareBenchmarks.compare(baseline, current, 10);
+
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0), regressions.get(0).startsWith("query@1000"));
+    }
+}